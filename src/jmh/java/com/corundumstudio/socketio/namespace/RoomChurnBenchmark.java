@@ -0,0 +1,108 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.namespace;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Join and leave of the same room by concurrent clients, one client per thread.
+ * Each operation joins a room and leaves it, so rooms are created and reclaimed
+ * all the time. Run with <code>-t</code> to set amount of threads.
+ * <p>
+ * <code>slots</code> uses {@link RoomRegistry} and {@link ClientRooms}
+ * as {@link Namespace} does, <code>uuids</code> uses {@link LegacyRooms}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoomChurnBenchmark {
+
+    @State(Scope.Thread)
+    public static class Client {
+
+        private final UUID sessionId = UUID.randomUUID();
+        private int slot;
+        private int index;
+
+        @Setup
+        public void setup(RoomChurnBenchmark benchmark) {
+            slot = benchmark.slots.getAndIncrement();
+            index = slot;
+        }
+
+    }
+
+    @Param({"slots", "uuids"})
+    private String rooms;
+
+    @Param({"1", "64"})
+    private int roomsCount;
+
+    private final AtomicInteger slots = new AtomicInteger();
+
+    private String[] names;
+    private Set<String>[] singletons;
+
+    private final RoomRegistry roomClients = new RoomRegistry();
+    private final ClientRooms clientRooms = new ClientRooms();
+    private final LegacyRooms legacyRooms = new LegacyRooms();
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        names = new String[roomsCount];
+        singletons = new Set[roomsCount];
+        for (int i = 0; i < roomsCount; i++) {
+            names[i] = "room" + i;
+            singletons[i] = Collections.singleton(names[i]);
+        }
+    }
+
+    @Benchmark
+    public void joinLeave(Client client) {
+        int room = client.index++ % roomsCount;
+        if ("slots".equals(rooms)) {
+            clientRooms.join(client.sessionId, singletons[room]);
+            roomClients.join(names[room], client.slot);
+
+            roomClients.leave(names[room], client.slot);
+            clientRooms.leave(client.sessionId, singletons[room]);
+        } else {
+            legacyRooms.join(names[room], client.sessionId);
+            legacyRooms.leave(names[room], client.sessionId);
+        }
+    }
+
+}
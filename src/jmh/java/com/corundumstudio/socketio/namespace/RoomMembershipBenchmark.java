@@ -0,0 +1,220 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.namespace;
+
+import io.netty.util.internal.PlatformDependent;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.corundumstudio.socketio.SocketIOClient;
+import com.corundumstudio.socketio.misc.IntIterator;
+
+/**
+ * Room membership with dense client slots ({@link RoomRegistry}, {@link ClientRooms})
+ * and with <code>Set&lt;UUID&gt;</code> ({@link LegacyRooms}).
+ * All results are per membership.
+ * <p>
+ * <code>join</code> fills rooms from scratch, run it with <code>-prof gc</code>
+ * to see allocated bytes per membership. <code>broadcast</code> resolves
+ * clients of every room as broadcast operations do.
+ * <p>
+ * {@link #main(String[])} prints retained heap bytes per membership.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoomMembershipBenchmark {
+
+    private static final int CLIENTS = 10000;
+
+    private static final List<Object> BLACKHOLE = new ArrayList<Object>();
+
+    @Param({"slots", "uuids"})
+    private String rooms;
+
+    @Param({"1", "1000"})
+    private int roomsCount;
+
+    private final SocketIOClient[] clients = new SocketIOClient[CLIENTS];
+    private final UUID[] sessionIds = new UUID[CLIENTS];
+    private final int[] slots = new int[CLIENTS];
+    private final String[] names = new String[CLIENTS];
+
+    private final ClientSlots clientSlots = new ClientSlots();
+    private final Map<UUID, SocketIOClient> allClients = PlatformDependent.newConcurrentHashMap();
+
+    private RoomRegistry roomClients;
+    private ClientRooms clientRooms;
+    private LegacyRooms legacyRooms;
+
+    /**
+     * Prints retained heap bytes per membership including client slots, run with
+     * <code>mvn -Pbenchmarks test-compile exec:java -Dexec.classpathScope=test
+     * -Dexec.mainClass=com.corundumstudio.socketio.namespace.RoomMembershipBenchmark</code>
+     */
+    public static void main(String[] args) {
+        // first pass warms up heap usage
+        for (int pass = 0; pass < 2; pass++) {
+            printFootprint(pass > 0);
+        }
+    }
+
+    private static void printFootprint(boolean print) {
+        for (String rooms : new String[] {"slots", "uuids"}) {
+            for (int roomsCount : new int[] {1, 1000}) {
+                RoomMembershipBenchmark benchmark = new RoomMembershipBenchmark();
+                benchmark.rooms = rooms;
+                benchmark.roomsCount = roomsCount;
+                benchmark.createClients();
+
+                long used = usedHeap();
+                if ("slots".equals(rooms)) {
+                    benchmark.addSlots();
+                }
+                benchmark.joinRooms();
+                long roomsUsed = usedHeap();
+                benchmark.joinClients();
+                long clientsUsed = usedHeap();
+
+                if (print) {
+                    System.out.println(rooms + ", " + roomsCount + " rooms: "
+                                        + (roomsUsed - used) / CLIENTS + " bytes per membership in rooms index, "
+                                        + (clientsUsed - roomsUsed) / CLIENTS + " bytes in clients index");
+                }
+                BLACKHOLE.add(benchmark);
+            }
+        }
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    @Setup
+    public void setup() {
+        createClients();
+        addSlots();
+        join();
+    }
+
+    private void createClients() {
+        InvocationHandler handler = new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                return null;
+            }
+        };
+        for (int i = 0; i < CLIENTS; i++) {
+            clients[i] = (SocketIOClient) Proxy.newProxyInstance(getClass().getClassLoader(),
+                                                new Class[] {SocketIOClient.class}, handler);
+            sessionIds[i] = UUID.randomUUID();
+            names[i] = "room" + i % roomsCount;
+            allClients.put(sessionIds[i], clients[i]);
+        }
+    }
+
+    private void addSlots() {
+        for (int i = 0; i < CLIENTS; i++) {
+            slots[i] = clientSlots.add(clients[i]);
+        }
+    }
+
+    private void joinRooms() {
+        if ("slots".equals(rooms)) {
+            roomClients = new RoomRegistry();
+            for (int i = 0; i < CLIENTS; i++) {
+                roomClients.join(names[i], slots[i]);
+            }
+        } else {
+            legacyRooms = new LegacyRooms();
+            for (int i = 0; i < CLIENTS; i++) {
+                legacyRooms.join(legacyRooms.roomClients, names[i], sessionIds[i]);
+            }
+        }
+    }
+
+    private void joinClients() {
+        if ("slots".equals(rooms)) {
+            clientRooms = new ClientRooms();
+            for (int i = 0; i < CLIENTS; i++) {
+                clientRooms.join(sessionIds[i], Collections.singleton(names[i]));
+            }
+        } else {
+            for (int i = 0; i < CLIENTS; i++) {
+                legacyRooms.join(legacyRooms.clientRooms, sessionIds[i], names[i]);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CLIENTS)
+    public Object join() {
+        joinRooms();
+        joinClients();
+        if ("slots".equals(rooms)) {
+            return roomClients;
+        }
+        return legacyRooms;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CLIENTS)
+    public void broadcast(Blackhole blackhole) {
+        for (int i = 0; i < roomsCount; i++) {
+            String name = names[i];
+            if ("slots".equals(rooms)) {
+                IntIterator iterator = roomClients.getMembers(name).iterator();
+                while (iterator.hasNext()) {
+                    blackhole.consume(clientSlots.get(iterator.next()));
+                }
+            } else {
+                for (UUID sessionId : legacyRooms.roomClients.get(name)) {
+                    blackhole.consume(allClients.get(sessionId));
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,182 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.protocol;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Event arguments binding by {@link JacksonJsonSupport}
+ * and {@link AfterburnerJsonSupport}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonSupportBenchmark {
+
+    public static class Position {
+
+        private double x;
+        private double y;
+
+        public double getX() {
+            return x;
+        }
+        public void setX(double x) {
+            this.x = x;
+        }
+
+        public double getY() {
+            return y;
+        }
+        public void setY(double y) {
+            this.y = y;
+        }
+
+    }
+
+    public static class ChatMessage {
+
+        private String user;
+        private String room;
+        private String text;
+        private long timestamp;
+        private boolean edited;
+        private List<String> tags;
+        private Position position;
+
+        public String getUser() {
+            return user;
+        }
+        public void setUser(String user) {
+            this.user = user;
+        }
+
+        public String getRoom() {
+            return room;
+        }
+        public void setRoom(String room) {
+            this.room = room;
+        }
+
+        public String getText() {
+            return text;
+        }
+        public void setText(String text) {
+            this.text = text;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+        public void setTimestamp(long timestamp) {
+            this.timestamp = timestamp;
+        }
+
+        public boolean isEdited() {
+            return edited;
+        }
+        public void setEdited(boolean edited) {
+            this.edited = edited;
+        }
+
+        public List<String> getTags() {
+            return tags;
+        }
+        public void setTags(List<String> tags) {
+            this.tags = tags;
+        }
+
+        public Position getPosition() {
+            return position;
+        }
+        public void setPosition(Position position) {
+            this.position = position;
+        }
+
+    }
+
+    private static final String EVENT = "[\"chat\",{\"user\":\"alice\",\"room\":\"lobby\","
+                                            + "\"text\":\"Hello everyone, how is it going?\",\"timestamp\":1592400000000,"
+                                            + "\"edited\":false,\"tags\":[\"greeting\",\"public\"],"
+                                            + "\"position\":{\"x\":12.5,\"y\":-3.25}}]";
+
+    @Param({"jackson", "afterburner"})
+    private String support;
+
+    private JsonSupport jsonSupport;
+    private ByteBuf json;
+    private ByteBuf buffer;
+    private List<Object> args;
+
+    @Setup
+    public void setup() throws IOException {
+        if ("afterburner".equals(support)) {
+            jsonSupport = new AfterburnerJsonSupport();
+        } else {
+            jsonSupport = new JacksonJsonSupport();
+        }
+        jsonSupport.addEventMapping("", "chat", ChatMessage.class);
+
+        json = Unpooled.copiedBuffer(EVENT, CharsetUtil.UTF_8);
+        buffer = Unpooled.buffer(1024);
+        args = Arrays.<Object>asList(decode().getArgs().get(0));
+    }
+
+    @TearDown
+    public void tearDown() {
+        json.release();
+        buffer.release();
+    }
+
+    @Benchmark
+    public Event decode() throws IOException {
+        return jsonSupport.readValue("", new ByteBufInputStream(json.duplicate()), Event.class);
+    }
+
+    @Benchmark
+    public ByteBuf encode() throws IOException {
+        buffer.clear();
+        jsonSupport.writeArgs(new ByteBufOutputStream(buffer), "chat", args, new ArrayList<ByteBuf>(0));
+        return buffer;
+    }
+
+}
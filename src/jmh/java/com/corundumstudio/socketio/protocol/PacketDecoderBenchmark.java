@@ -0,0 +1,116 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.protocol;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.util.CharsetUtil;
+
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.corundumstudio.socketio.Configuration;
+import com.corundumstudio.socketio.HandshakeData;
+import com.corundumstudio.socketio.Transport;
+import com.corundumstudio.socketio.handler.ClientHead;
+import com.corundumstudio.socketio.handler.ClientsBox;
+import com.corundumstudio.socketio.store.MemoryStoreFactory;
+
+/**
+ * Polling payload decoding with <code>text</code> framing
+ * <code>&lt;chars&gt;:&lt;data&gt;</code> and <code>binary</code> framing
+ * <code>0x0&lt;digits&gt;0xff&lt;data&gt;</code>.
+ * <p>
+ * <code>ping</code> frames are cheap to parse, so their payloads mostly
+ * measure framing. <code>event</code> frames add event parsing.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PacketDecoderBenchmark {
+
+    private static final String PING = "2probe";
+    private static final String EVENT = "42[\"message\",\"h\u00e9llo\"]";
+
+    @Param({"1", "10", "50"})
+    private int packets;
+
+    @Param({"text", "binary"})
+    private String framing;
+
+    @Param({"ping", "event"})
+    private String frame;
+
+    private PacketDecoder decoder;
+    private ClientHead client;
+    private ByteBuf payload;
+
+    @Setup
+    public void setup() {
+        JacksonJsonSupport jsonSupport = new JacksonJsonSupport();
+        jsonSupport.addEventMapping("", "message", String.class);
+        decoder = new PacketDecoder(jsonSupport, null);
+        client = new ClientHead(UUID.randomUUID(), null, null, new MemoryStoreFactory(),
+                new HandshakeData(new DefaultHttpHeaders(), null, null, null, false),
+                new ClientsBox(), Transport.POLLING, null, new Configuration());
+
+        String data = PING;
+        if ("event".equals(frame)) {
+            data = EVENT;
+        }
+        byte[] bytes = data.getBytes(CharsetUtil.UTF_8);
+        payload = Unpooled.buffer();
+        for (int i = 0; i < packets; i++) {
+            if ("text".equals(framing)) {
+                payload.writeCharSequence(data.length() + ":", CharsetUtil.UTF_8);
+            } else {
+                payload.writeByte(0);
+                for (char digit : String.valueOf(bytes.length).toCharArray()) {
+                    payload.writeByte(digit - '0');
+                }
+                payload.writeByte(0xff);
+            }
+            payload.writeBytes(bytes);
+        }
+    }
+
+    @Benchmark
+    public void decode(Blackhole blackhole) throws IOException {
+        payload.readerIndex(0);
+        while (payload.isReadable()) {
+            blackhole.consume(decoder.decodePackets(payload, client));
+        }
+    }
+
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.protocol;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.corundumstudio.socketio.Configuration;
+
+/**
+ * Outbound packet encoding. Run with <code>-prof gc</code>
+ * to see allocated bytes per packet.
+ * <p>
+ * <code>connect</code> encodes header only, <code>ack</code> adds ack id,
+ * <code>event</code> adds event name and arguments,
+ * <code>payload</code> encodes 10 events as a polling payload.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PacketEncoderBenchmark {
+
+    private static final int PAYLOAD_PACKETS = 10;
+
+    private final ByteBufAllocator allocator = PooledByteBufAllocator.DEFAULT;
+
+    private final Queue<Packet> packets = new ArrayDeque<Packet>(PAYLOAD_PACKETS);
+
+    private PacketEncoder encoder;
+    private ByteBuf buffer;
+
+    private Packet connect;
+    private Packet ack;
+    private Packet event;
+
+    @Setup
+    public void setup() {
+        encoder = new PacketEncoder(new Configuration(), new JacksonJsonSupport());
+        buffer = allocator.heapBuffer(4096);
+
+        connect = new Packet(PacketType.MESSAGE);
+        connect.setSubType(PacketType.CONNECT);
+        connect.setNsp("/chat");
+
+        ack = new Packet(PacketType.MESSAGE);
+        ack.setSubType(PacketType.ACK);
+        ack.setNsp("/chat");
+        ack.setAckId(123456L);
+        ack.setData(Collections.emptyList());
+
+        event = new Packet(PacketType.MESSAGE);
+        event.setSubType(PacketType.EVENT);
+        event.setNsp("/chat");
+        event.setName("message");
+        event.setData(Arrays.<Object>asList("hello", 1));
+    }
+
+    @TearDown
+    public void tearDown() {
+        buffer.release();
+    }
+
+    private ByteBuf encode(Packet packet) throws IOException {
+        buffer.clear();
+        encoder.encodePacket(packet, buffer, allocator, false);
+        return buffer;
+    }
+
+    @Benchmark
+    public ByteBuf connect() throws IOException {
+        return encode(connect);
+    }
+
+    @Benchmark
+    public ByteBuf ack() throws IOException {
+        return encode(ack);
+    }
+
+    @Benchmark
+    public ByteBuf event() throws IOException {
+        return encode(event);
+    }
+
+    @Benchmark
+    public ByteBuf payload() throws IOException {
+        for (int i = 0; i < PAYLOAD_PACKETS; i++) {
+            packets.add(event);
+        }
+        buffer.clear();
+        encoder.encodePackets(packets, buffer, allocator, PAYLOAD_PACKETS);
+        return buffer;
+    }
+
+}
@@ -16,6 +16,7 @@
 package com.corundumstudio.socketio;
 
 import com.corundumstudio.socketio.protocol.Packet;
+import com.corundumstudio.socketio.protocol.RelayEvent;
 
 import java.util.Collection;
 
@@ -35,4 +36,21 @@ public interface BroadcastOperations extends ClientOperations {
 
     <T> void sendEvent(String name, Object data, SocketIOClient excludedClient, BroadcastAckCallback<T> ackCallback);
 
+    /**
+     * Send event received from client as is,
+     * without deserialization and serialization of its arguments.
+     *
+     * @param event - received event
+     */
+    void relay(RelayEvent event);
+
+    /**
+     * Send event received from client as is,
+     * without deserialization and serialization of its arguments.
+     *
+     * @param event - received event
+     * @param excludedClient - client which shouldn't receive event, usually its sender
+     */
+    void relay(RelayEvent event, SocketIOClient excludedClient);
+
 }
@@ -17,12 +17,15 @@ package com.corundumstudio.socketio;
 
 import java.io.InputStream;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import com.corundumstudio.socketio.handler.SuccessAuthorizationListener;
 import com.corundumstudio.socketio.listener.DefaultExceptionListener;
 import com.corundumstudio.socketio.listener.ExceptionListener;
 import com.corundumstudio.socketio.protocol.JsonSupport;
+import com.corundumstudio.socketio.protocol.PacketCodec;
 import com.corundumstudio.socketio.store.MemoryStoreFactory;
 import com.corundumstudio.socketio.store.StoreFactory;
 
@@ -88,6 +91,17 @@ public class Configuration {
 
     private boolean randomSession = false;
 
+    private int pollingBatchSize = 50;
+    private int pollingBatchMaxBytes = 0;
+    private boolean pollingBatchAdaptive = false;
+    private int maxPollingBatchSize = 1000;
+
+    private int websocketFlushDelay = 0;
+
+    private boolean rawBinaryAttachments = false;
+
+    private Map<String, PacketCodec> packetCodecs = Collections.emptyMap();
+
     public Configuration() {
     }
 
@@ -154,6 +168,14 @@ public class Configuration {
         setHttpCompression(conf.isHttpCompression());
         setWebsocketCompression(conf.isWebsocketCompression());
         setRandomSession(conf.randomSession);
+
+        setPollingBatchSize(conf.getPollingBatchSize());
+        setPollingBatchMaxBytes(conf.getPollingBatchMaxBytes());
+        setPollingBatchAdaptive(conf.isPollingBatchAdaptive());
+        setMaxPollingBatchSize(conf.getMaxPollingBatchSize());
+        setWebsocketFlushDelay(conf.getWebsocketFlushDelay());
+        setRawBinaryAttachments(conf.isRawBinaryAttachments());
+        setPacketCodecs(conf.getPacketCodecs());
     }
 
     public JsonSupport getJsonSupport() {
@@ -584,4 +606,133 @@ public class Configuration {
     public void setRandomSession(boolean randomSession) {
         this.randomSession = randomSession;
     }
-}
+
+    /**
+     * Max amount of packets sent in single polling response.
+     * Rest of packets are delivered with subsequent polling requests.
+     * <p>
+     * Default is <code>50</code>
+     *
+     * @param pollingBatchSize - max amount of packets
+     */
+    public void setPollingBatchSize(int pollingBatchSize) {
+        if (pollingBatchSize <= 0) {
+            throw new IllegalArgumentException("pollingBatchSize should be positive: " + pollingBatchSize);
+        }
+        this.pollingBatchSize = pollingBatchSize;
+    }
+    public int getPollingBatchSize() {
+        return pollingBatchSize;
+    }
+
+    /**
+     * Max amount of encoded bytes in single polling response.
+     * Packets encoding stops once this amount is reached,
+     * but at least one packet is always sent.
+     * <p>
+     * Default is <code>0</code> which means no limit
+     *
+     * @param pollingBatchMaxBytes - max amount of bytes
+     */
+    public void setPollingBatchMaxBytes(int pollingBatchMaxBytes) {
+        if (pollingBatchMaxBytes < 0) {
+            throw new IllegalArgumentException("pollingBatchMaxBytes can't be negative: " + pollingBatchMaxBytes);
+        }
+        this.pollingBatchMaxBytes = pollingBatchMaxBytes;
+    }
+    public int getPollingBatchMaxBytes() {
+        return pollingBatchMaxBytes;
+    }
+
+    /**
+     * Adapt polling batch size for each client.
+     * Batch size is doubled up to {@link #getMaxPollingBatchSize()}
+     * while client packets queue isn't drained by polling response
+     * and is halved back to {@link #getPollingBatchSize()} otherwise.
+     * <p>
+     * Default is <code>false</code>
+     *
+     * @param pollingBatchAdaptive - <code>true</code> to use adaptive batch size
+     */
+    public void setPollingBatchAdaptive(boolean pollingBatchAdaptive) {
+        this.pollingBatchAdaptive = pollingBatchAdaptive;
+    }
+    public boolean isPollingBatchAdaptive() {
+        return pollingBatchAdaptive;
+    }
+
+    /**
+     * Max amount of packets sent in single polling response
+     * when adaptive batch size is used.
+     * <p>
+     * Default is <code>1000</code>
+     *
+     * @param maxPollingBatchSize - max amount of packets
+     *
+     * @see #setPollingBatchAdaptive(boolean)
+     */
+    public void setMaxPollingBatchSize(int maxPollingBatchSize) {
+        if (maxPollingBatchSize <= 0) {
+            throw new IllegalArgumentException("maxPollingBatchSize should be positive: " + maxPollingBatchSize);
+        }
+        this.maxPollingBatchSize = maxPollingBatchSize;
+    }
+    public int getMaxPollingBatchSize() {
+        return maxPollingBatchSize;
+    }
+
+    /**
+     * Delay in milliseconds to coalesce websocket frames
+     * written to the same channel during it into a single flush.
+     * Reduces amount of syscalls for bursts of small packets
+     * at the cost of added latency.
+     * <p>
+     * Default is <code>0</code> which means frames are flushed right away
+     *
+     * @param websocketFlushDelay - delay in milliseconds
+     */
+    public void setWebsocketFlushDelay(int websocketFlushDelay) {
+        this.websocketFlushDelay = websocketFlushDelay;
+    }
+    public int getWebsocketFlushDelay() {
+        return websocketFlushDelay;
+    }
+
+    /**
+     * Deliver binary attachments of inbound packets to <code>byte[]</code>
+     * arguments directly without base64 encoding and decoding them.
+     * Attachments can be received only as <code>byte[]</code> in this mode,
+     * since they are not substituted to packet JSON as base64 strings.
+     * Custom {@link JsonSupport} extending {@link com.corundumstudio.socketio.protocol.JsonSupportAdapter}
+     * can't be used in this mode.
+     * <p>
+     * Default is <code>false</code>
+     *
+     * @param rawBinaryAttachments - <code>true</code> to deliver attachments directly
+     */
+    public void setRawBinaryAttachments(boolean rawBinaryAttachments) {
+        this.rawBinaryAttachments = rawBinaryAttachments;
+    }
+    public boolean isRawBinaryAttachments() {
+        return rawBinaryAttachments;
+    }
+
+    /**
+     * Packet codecs for binary wire formats by their names.
+     * Client selects codec by name passed in <code>codec</code> handshake query parameter,
+     * default text encoding is used if parameter is absent or codec isn't found.
+     * <p>
+     * Default is empty map
+     *
+     * @param packetCodecs - codecs by names
+     *
+     * @see com.corundumstudio.socketio.protocol.JacksonPacketCodec
+     */
+    public void setPacketCodecs(Map<String, PacketCodec> packetCodecs) {
+        this.packetCodecs = packetCodecs;
+    }
+    public Map<String, PacketCodec> getPacketCodecs() {
+        return packetCodecs;
+    }
+
+}
\ No newline at end of file
@@ -15,6 +15,7 @@
  */
 package com.corundumstudio.socketio;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufInputStream;
 import io.netty.buffer.ByteBufOutputStream;
 
@@ -59,6 +60,29 @@ class JsonSupportWrapper implements JsonSupport {
         }
     }
 
+    @Override
+    public <T> T readValue(String namespaceName, ByteBufInputStream src, Class<T> valueType,
+                                List<ByteBuf> attachments) throws IOException {
+        try {
+            return delegate.readValue(namespaceName, src, valueType, attachments);
+        } catch (Exception e) {
+            src.reset();
+            log.error("Can't read value: " + src.readLine() + " for type: " + valueType, e);
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public AckArgs readAckArgs(ByteBufInputStream src, AckCallback<?> callback, List<ByteBuf> attachments) throws IOException {
+        try {
+            return delegate.readAckArgs(src, callback, attachments);
+        } catch (Exception e) {
+            src.reset();
+            log.error("Can't read ack args: " + src.readLine() + " for type: " + callback.getResultClass(), e);
+            throw new IOException(e);
+        }
+    }
+
     @Override
     public void writeValue(ByteBufOutputStream out, Object value) throws IOException {
         try {
@@ -69,6 +93,16 @@ class JsonSupportWrapper implements JsonSupport {
         }
     }
 
+    @Override
+    public void writeArgs(ByteBufOutputStream out, String name, List<?> args, List<ByteBuf> attachments) throws IOException {
+        try {
+            delegate.writeArgs(out, name, args, attachments);
+        } catch (Exception e) {
+            log.error("Can't write args: " + args + " of event: " + name, e);
+            throw new IOException(e);
+        }
+    }
+
     @Override
     public void addEventMapping(String namespaceName, String eventName, Class<?> ... eventClass) {
         delegate.addEventMapping(namespaceName, eventName, eventClass);
@@ -80,6 +114,7 @@ class JsonSupportWrapper implements JsonSupport {
     }
 
     @Override
+    @Deprecated
     public List<byte[]> getArrays() {
         return delegate.getArrays();
     }
@@ -0,0 +1,91 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio;
+
+import java.io.IOException;
+
+import com.corundumstudio.socketio.protocol.JsonSupport;
+
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+
+/**
+ * Event argument which is not bound to any class during decoding.
+ * <p>
+ * Declare it as event class of listener to receive
+ * argument as JSON bytes which are deserialized only on first {@link #getValue(Class)} call.
+ * Only binding to a class is deferred: argument is still tokenized
+ * and copied to its own JSON bytes while the packet is decoded.
+ * Being sent back to client (as event argument or ack data) it's written
+ * as is without serialization round-trip.
+ * <p>
+ * Binary attachments are resolved only if {@link Configuration#isRawBinaryAttachments()}
+ * is <code>false</code>, because raw attachments are not available after decoding.
+ */
+public class LazyArgument {
+
+    private final byte[] json;
+    private final JsonSupport jsonSupport;
+
+    private Class<?> valueType;
+    private Object value;
+
+    public LazyArgument(byte[] json, JsonSupport jsonSupport) {
+        super();
+        this.json = json;
+        this.jsonSupport = jsonSupport;
+    }
+
+    /**
+     * Returns argument JSON in UTF-8 encoding.
+     * Returned array should not be modified.
+     *
+     * @return JSON bytes
+     */
+    public byte[] getBytes() {
+        return json;
+    }
+
+    /**
+     * Deserializes argument to <code>valueType</code>.
+     * Result of the last invocation is cached.
+     *
+     * @param <T> type of value
+     * @param valueType - class of value
+     * @return value
+     * @throws IOException if argument can't be deserialized
+     */
+    public synchronized <T> T getValue(Class<T> valueType) throws IOException {
+        if (this.valueType == valueType) {
+            // value has been read as instance of the same valueType
+            @SuppressWarnings("unchecked")
+            T cached = (T) value;
+            return cached;
+        }
+
+        T result = jsonSupport.readValue(null, new ByteBufInputStream(Unpooled.wrappedBuffer(json)), valueType);
+        this.value = result;
+        this.valueType = valueType;
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return new String(json, CharsetUtil.UTF_8);
+    }
+
+}
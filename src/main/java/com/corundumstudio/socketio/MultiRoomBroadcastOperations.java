@@ -15,10 +15,15 @@
  */
 package com.corundumstudio.socketio;
 
+import com.corundumstudio.socketio.handler.BroadcastBatch;
+import com.corundumstudio.socketio.namespace.Namespace;
 import com.corundumstudio.socketio.protocol.Packet;
+import com.corundumstudio.socketio.protocol.RelayEvent;
 
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -114,4 +119,45 @@ public class MultiRoomBroadcastOperations implements BroadcastOperations {
             b.sendEvent( name, data );
         }
     }
-}
+
+    @Override
+    public void relay(RelayEvent event) {
+        relay(event, null);
+    }
+
+    /**
+     * Each local client receives event once, even if it's present
+     * in several operations. Clients of each namespace share
+     * the same packet copy. Event is dispatched to other nodes
+     * by each single room operation.
+     */
+    @Override
+    public void relay(RelayEvent event, SocketIOClient excludedClient) {
+        if( this.broadcastOperations == null || this.broadcastOperations.size() == 0 ) {
+            return;
+        }
+        Map<SocketIONamespace, Set<SocketIOClient>> namespaceClients = new HashMap<SocketIONamespace, Set<SocketIOClient>>();
+        for( SocketIOClient client : getClients() ) {
+            Set<SocketIOClient> clients = namespaceClients.get( client.getNamespace() );
+            if( clients == null ) {
+                clients = new HashSet<SocketIOClient>();
+                namespaceClients.put( client.getNamespace(), clients );
+            }
+            clients.add( client );
+        }
+
+        Packet packet = event.createPacket();
+        BroadcastBatch batch = new BroadcastBatch();
+        for( Map.Entry<SocketIONamespace, Set<SocketIOClient>> entry : namespaceClients.entrySet() ) {
+            Namespace namespace = (Namespace) entry.getKey();
+            namespace.send( entry.getValue(), packet, excludedClient, batch );
+        }
+        batch.flush();
+
+        for( BroadcastOperations b : this.broadcastOperations ) {
+            if( b instanceof SingleRoomBroadcastOperations ) {
+                ( (SingleRoomBroadcastOperations) b ).dispatch( packet );
+            }
+        }
+    }
+}
\ No newline at end of file
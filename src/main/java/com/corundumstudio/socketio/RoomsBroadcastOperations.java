@@ -0,0 +1,107 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import com.corundumstudio.socketio.namespace.Namespace;
+import com.corundumstudio.socketio.protocol.Packet;
+import com.corundumstudio.socketio.store.StoreFactory;
+import com.corundumstudio.socketio.store.pubsub.DispatchMessage;
+import com.corundumstudio.socketio.store.pubsub.PubSubType;
+
+/**
+ * Broadcast operations for clients joined to any of target rooms
+ * and none of excluded rooms of single namespace.
+ * Each client receives packet once, even if it joined several target rooms.
+ * <p>
+ * Clients are resolved on each operation. Not thread-safe
+ * while rooms are being added.
+ * <p>
+ * Packets are delivered to other nodes by {@link PubSubType#DISPATCH_ROOMS} message,
+ * nodes of previous versions ignore it. All nodes should be upgraded
+ * before these operations are used in cluster.
+ *
+ */
+public class RoomsBroadcastOperations extends SingleRoomBroadcastOperations {
+
+    private static class RoomsClients implements Iterable<SocketIOClient> {
+
+        final Namespace namespace;
+        final Set<String> rooms = new LinkedHashSet<String>();
+        final Set<String> exceptRooms = new LinkedHashSet<String>();
+
+        RoomsClients(Namespace namespace) {
+            this.namespace = namespace;
+        }
+
+        @Override
+        public Iterator<SocketIOClient> iterator() {
+            return namespace.getRoomClients(rooms, exceptRooms).iterator();
+        }
+
+    }
+
+    private final String namespace;
+    private final RoomsClients clients;
+    private final StoreFactory storeFactory;
+
+    public RoomsBroadcastOperations(Namespace namespace, StoreFactory storeFactory) {
+        this(new RoomsClients(namespace), storeFactory);
+    }
+
+    private RoomsBroadcastOperations(RoomsClients clients, StoreFactory storeFactory) {
+        super(clients.namespace.getName(), null, clients, storeFactory);
+        this.namespace = clients.namespace.getName();
+        this.clients = clients;
+        this.storeFactory = storeFactory;
+    }
+
+    /**
+     * Adds rooms which clients should receive packets
+     *
+     * @param rooms - names of rooms
+     * @return this instance
+     */
+    public RoomsBroadcastOperations to(String... rooms) {
+        clients.rooms.addAll(Arrays.asList(rooms));
+        return this;
+    }
+
+    /**
+     * Adds rooms which clients shouldn't receive packets,
+     * even if they joined to target rooms
+     *
+     * @param rooms - names of rooms
+     * @return this instance
+     */
+    public RoomsBroadcastOperations except(String... rooms) {
+        clients.exceptRooms.addAll(Arrays.asList(rooms));
+        return this;
+    }
+
+    @Override
+    protected void dispatch(Packet packet) {
+        storeFactory.pubSubStore().publish(
+                PubSubType.DISPATCH_ROOMS,
+                new DispatchMessage(new LinkedHashSet<String>(clients.rooms),
+                                        new LinkedHashSet<String>(clients.exceptRooms), packet, namespace));
+    }
+
+}
@@ -0,0 +1,154 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import com.corundumstudio.socketio.handler.BroadcastBatch;
+import com.corundumstudio.socketio.misc.IterableCollection;
+import com.corundumstudio.socketio.namespace.Namespace;
+import com.corundumstudio.socketio.namespace.NamespacesHub;
+import com.corundumstudio.socketio.protocol.Packet;
+import com.corundumstudio.socketio.protocol.PacketType;
+import com.corundumstudio.socketio.protocol.RelayEvent;
+import com.corundumstudio.socketio.store.StoreFactory;
+import com.corundumstudio.socketio.store.pubsub.DispatchMessage;
+import com.corundumstudio.socketio.store.pubsub.PubSubType;
+
+/**
+ * Broadcast operations for clients of room in all namespaces.
+ * Namespaces are resolved on each operation and those
+ * without clients in room are skipped.
+ * <p>
+ * Packets are delivered to other nodes by dispatch message
+ * of each namespace, the same way as by namespace broadcast operations.
+ *
+ */
+public class ServerBroadcastOperations implements BroadcastOperations {
+
+    private final NamespacesHub namespacesHub;
+    private final String room;
+    private final StoreFactory storeFactory;
+
+    /**
+     * @param namespacesHub - namespaces
+     * @param room - room name, <code>null</code> means all clients
+     * @param storeFactory - store factory
+     */
+    public ServerBroadcastOperations(NamespacesHub namespacesHub, String room, StoreFactory storeFactory) {
+        this.namespacesHub = namespacesHub;
+        this.room = room;
+        this.storeFactory = storeFactory;
+    }
+
+    private void dispatch(Packet packet) {
+        for (SocketIONamespace namespace : namespacesHub.getAllNamespaces()) {
+            String name = namespace.getName();
+            // all clients of namespace are joined to room with its name
+            String targetRoom = room;
+            if (targetRoom == null) {
+                targetRoom = name;
+            }
+            storeFactory.pubSubStore().publish(
+                    PubSubType.DISPATCH,
+                    new DispatchMessage(targetRoom, packet, name));
+        }
+    }
+
+    @Override
+    public Collection<SocketIOClient> getClients() {
+        return new IterableCollection<SocketIOClient>(namespacesHub.getRoomClients(room));
+    }
+
+    @Override
+    public void send(Packet packet) {
+        send(packet, (SocketIOClient) null);
+    }
+
+    private void send(Packet packet, SocketIOClient excludedClient) {
+        BroadcastBatch batch = new BroadcastBatch();
+        for (SocketIONamespace namespace : namespacesHub.getAllNamespaces()) {
+            Namespace ns = (Namespace) namespace;
+            ns.send(NamespacesHub.getClients(ns, room), packet, excludedClient, batch);
+        }
+        batch.flush();
+        dispatch(packet);
+    }
+
+    @Override
+    public <T> void send(Packet packet, BroadcastAckCallback<T> ackCallback) {
+        for (SocketIOClient client : namespacesHub.getRoomClients(room)) {
+            client.send(packet, ackCallback.createClientCallback(client));
+        }
+        ackCallback.loopFinished();
+    }
+
+    @Override
+    public void disconnect() {
+        for (SocketIOClient client : namespacesHub.getRoomClients(room)) {
+            client.disconnect();
+        }
+    }
+
+    @Override
+    public void sendEvent(String name, Object... data) {
+        send(createEvent(name, data));
+    }
+
+    @Override
+    public void sendEvent(String name, SocketIOClient excludedClient, Object... data) {
+        send(createEvent(name, data), excludedClient);
+    }
+
+    private Packet createEvent(String name, Object... data) {
+        Packet packet = new Packet(PacketType.MESSAGE);
+        packet.setSubType(PacketType.EVENT);
+        packet.setName(name);
+        packet.setData(Arrays.asList(data));
+        return packet;
+    }
+
+    @Override
+    public <T> void sendEvent(String name, Object data, BroadcastAckCallback<T> ackCallback) {
+        for (SocketIOClient client : namespacesHub.getRoomClients(room)) {
+            client.sendEvent(name, ackCallback.createClientCallback(client), data);
+        }
+        ackCallback.loopFinished();
+    }
+
+    @Override
+    public <T> void sendEvent(String name, Object data, SocketIOClient excludedClient, BroadcastAckCallback<T> ackCallback) {
+        for (SocketIOClient client : namespacesHub.getRoomClients(room)) {
+            if (client.getSessionId().equals(excludedClient.getSessionId())) {
+                continue;
+            }
+            client.sendEvent(name, ackCallback.createClientCallback(client), data);
+        }
+        ackCallback.loopFinished();
+    }
+
+    @Override
+    public void relay(RelayEvent event) {
+        send(event.createPacket());
+    }
+
+    @Override
+    public void relay(RelayEvent event, SocketIOClient excludedClient) {
+        send(event.createPacket(), excludedClient);
+    }
+
+}
@@ -15,9 +15,11 @@
  */
 package com.corundumstudio.socketio;
 
+import com.corundumstudio.socketio.handler.BroadcastBatch;
 import com.corundumstudio.socketio.misc.IterableCollection;
 import com.corundumstudio.socketio.protocol.Packet;
 import com.corundumstudio.socketio.protocol.PacketType;
+import com.corundumstudio.socketio.protocol.RelayEvent;
 import com.corundumstudio.socketio.store.StoreFactory;
 import com.corundumstudio.socketio.store.pubsub.DispatchMessage;
 import com.corundumstudio.socketio.store.pubsub.PubSubType;
@@ -43,7 +45,7 @@ public class SingleRoomBroadcastOperations implements BroadcastOperations {
         this.storeFactory = storeFactory;
     }
 
-    private void dispatch(Packet packet) {
+    protected void dispatch(Packet packet) {
         this.storeFactory.pubSubStore().publish(
                 PubSubType.DISPATCH,
                 new DispatchMessage(this.room, packet, this.namespace));
@@ -56,9 +58,12 @@ public class SingleRoomBroadcastOperations implements BroadcastOperations {
 
     @Override
     public void send(Packet packet) {
+        Packet sharedPacket = packet.shareWithNsp(namespace);
+        BroadcastBatch batch = new BroadcastBatch();
         for (SocketIOClient client : clients) {
-            client.send(packet);
+            batch.send(client, sharedPacket);
         }
+        batch.flush();
         dispatch(packet);
     }
 
@@ -83,13 +88,19 @@ public class SingleRoomBroadcastOperations implements BroadcastOperations {
         packet.setSubType(PacketType.EVENT);
         packet.setName(name);
         packet.setData(Arrays.asList(data));
+        send(packet, excludedClient);
+    }
 
+    private void send(Packet packet, SocketIOClient excludedClient) {
+        Packet sharedPacket = packet.shareWithNsp(namespace);
+        BroadcastBatch batch = new BroadcastBatch();
         for (SocketIOClient client : clients) {
             if (client.getSessionId().equals(excludedClient.getSessionId())) {
                 continue;
             }
-            client.send(packet);
+            batch.send(client, sharedPacket);
         }
+        batch.flush();
         dispatch(packet);
     }
 
@@ -120,4 +131,14 @@ public class SingleRoomBroadcastOperations implements BroadcastOperations {
         }
         ackCallback.loopFinished();
     }
-}
+
+    @Override
+    public void relay(RelayEvent event) {
+        send(event.createPacket());
+    }
+
+    @Override
+    public void relay(RelayEvent event, SocketIOClient excludedClient) {
+        send(event.createPacket(), excludedClient);
+    }
+}
\ No newline at end of file
@@ -106,7 +106,7 @@ public class SocketIOChannelInitializer extends ChannelInitializer<Channel> impl
 
         JsonSupport jsonSupport = configuration.getJsonSupport();
         PacketEncoder encoder = new PacketEncoder(configuration, jsonSupport);
-        PacketDecoder decoder = new PacketDecoder(jsonSupport, ackManager);
+        PacketDecoder decoder = new PacketDecoder(configuration, jsonSupport, ackManager, namespacesHub.getNamespaceNames());
 
         String connectPath = configuration.getContext() + "/";
 
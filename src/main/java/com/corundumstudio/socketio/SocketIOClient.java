@@ -102,6 +102,20 @@ public interface SocketIOClient extends ClientOperations, Store {
      */
     void leaveRoom(String room);
 
+    /**
+     * Join client to rooms at once
+     *
+     * @param rooms - names of rooms
+     */
+    void joinRooms(Set<String> rooms);
+
+    /**
+     * Leave client from rooms at once
+     *
+     * @param rooms - names of rooms
+     */
+    void leaveRooms(Set<String> rooms);
+
     /**
      * Get all rooms a client is joined in.
      *
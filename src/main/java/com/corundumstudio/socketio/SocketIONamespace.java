@@ -32,6 +32,19 @@ public interface SocketIONamespace extends ClientListeners {
 
     BroadcastOperations getRoomOperations(String room);
 
+    /**
+     * Get broadcast operations for clients within any of <code>rooms</code>.
+     * Each client receives packet once, even if it joined several of them.
+     * <p>
+     * This method is new to the interface, so custom realizations
+     * written against earlier versions have to implement it,
+     * for example by extending {@link com.corundumstudio.socketio.namespace.Namespace}.
+     *
+     * @param rooms - names of rooms
+     * @return broadcast operations
+     */
+    RoomsBroadcastOperations to(String... rooms);
+
     /**
      * Get all clients connected to namespace
      *
@@ -29,9 +29,7 @@ import io.netty.util.concurrent.Future;
 import io.netty.util.concurrent.FutureListener;
 
 import java.net.InetSocketAddress;
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.List;
 import java.util.UUID;
 
 import org.slf4j.Logger;
@@ -53,6 +51,7 @@ public class SocketIOServer implements ClientListeners {
 
     private final NamespacesHub namespacesHub;
     private final SocketIONamespace mainNamespace;
+    private final BroadcastOperations broadcastOperations;
 
     private SocketIOChannelInitializer pipelineFactory = new SocketIOChannelInitializer();
 
@@ -63,6 +62,7 @@ public class SocketIOServer implements ClientListeners {
         this.configuration = configuration;
         this.configCopy = new Configuration(configuration);
         namespacesHub = new NamespacesHub(configCopy);
+        broadcastOperations = new ServerBroadcastOperations(namespacesHub, null, configCopy.getStoreFactory());
         mainNamespace = addNamespace(Namespace.DEFAULT_NAME);
     }
 
@@ -99,16 +99,7 @@ public class SocketIOServer implements ClientListeners {
     }
 
     public BroadcastOperations getBroadcastOperations() {
-        Collection<SocketIONamespace> namespaces = namespacesHub.getAllNamespaces();
-        List<BroadcastOperations> list = new ArrayList<BroadcastOperations>();
-        BroadcastOperations broadcast = null;
-        if( namespaces != null && namespaces.size() > 0 ) {
-            for( SocketIONamespace n : namespaces ) {
-                broadcast = n.getBroadcastOperations();
-                list.add( broadcast );
-            }
-        }
-        return new MultiRoomBroadcastOperations( list );
+        return broadcastOperations;
     }
 
     /**
@@ -119,16 +110,7 @@ public class SocketIOServer implements ClientListeners {
      * @return broadcast operations
      */
     public BroadcastOperations getRoomOperations(String room) {
-        Collection<SocketIONamespace> namespaces = namespacesHub.getAllNamespaces();
-        List<BroadcastOperations> list = new ArrayList<BroadcastOperations>();
-        BroadcastOperations broadcast = null;
-        if( namespaces != null && namespaces.size() > 0 ) {
-            for( SocketIONamespace n : namespaces ) {
-                broadcast = n.getRoomOperations( room );
-                list.add( broadcast );
-            }
-        }
-        return new MultiRoomBroadcastOperations( list );
+        return new ServerBroadcastOperations(namespacesHub, room, configCopy.getStoreFactory());
     }
 
     /**
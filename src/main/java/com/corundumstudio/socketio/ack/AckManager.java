@@ -26,7 +26,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentMap;
@@ -37,7 +36,7 @@ public class AckManager implements Disconnectable {
 
     class AckEntry {
 
-        final Map<Long, AckCallback<?>> ackCallbacks = PlatformDependent.newConcurrentHashMap();
+        final ConcurrentMap<Long, AckCallback<?>> ackCallbacks = PlatformDependent.newConcurrentHashMap();
         final AtomicLong ackIndex = new AtomicLong(-1);
 
         public long addAckCallback(AckCallback<?> callback) {
@@ -58,6 +57,10 @@ public class AckManager implements Disconnectable {
             return ackCallbacks.remove(index);
         }
 
+        public boolean removeCallback(long index, AckCallback<?> callback) {
+            return ackCallbacks.remove(index, callback);
+        }
+
         public void initAckIndex(long index) {
             ackIndex.compareAndSet(-1, index);
         }
@@ -97,7 +100,15 @@ public class AckManager implements Disconnectable {
         AckSchedulerKey key = new AckSchedulerKey(Type.ACK_TIMEOUT, client.getSessionId(), packet.getAckId());
         scheduler.cancel(key);
 
-        AckCallback callback = removeCallback(client.getSessionId(), packet.getAckId());
+        AckCallback callback = packet.getAckCallback();
+        if (callback != null) {
+            // resolved during decoding
+            if (!removeCallback(client.getSessionId(), packet.getAckId(), callback)) {
+                return;
+            }
+        } else {
+            callback = removeCallback(client.getSessionId(), packet.getAckId());
+        }
         if (callback == null) {
             return;
         }
@@ -127,8 +138,27 @@ public class AckManager implements Disconnectable {
         return null;
     }
 
+    /**
+     * Removes callback only if it's still registered,
+     * so it isn't invoked twice if ack timeout has already occurred
+     */
+    private boolean removeCallback(UUID sessionId, long index, AckCallback<?> callback) {
+        AckEntry ackEntry = ackEntries.get(sessionId);
+        return ackEntry != null && ackEntry.removeCallback(index, callback);
+    }
+
+    /**
+     * Returns registered callback without removing it
+     *
+     * @param sessionId - client session id
+     * @param index - ack id
+     * @return callback or <code>null</code> if it's not found
+     */
     public AckCallback<?> getCallback(UUID sessionId, long index) {
-        AckEntry ackEntry = getAckEntry(sessionId);
+        AckEntry ackEntry = ackEntries.get(sessionId);
+        if (ackEntry == null) {
+            return null;
+        }
         return ackEntry.getAckCallback(index);
     }
 
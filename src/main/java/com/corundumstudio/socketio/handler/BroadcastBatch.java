@@ -0,0 +1,125 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.handler;
+
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoop;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.corundumstudio.socketio.SocketIOClient;
+import com.corundumstudio.socketio.Transport;
+import com.corundumstudio.socketio.messages.OutPacketMessage;
+import com.corundumstudio.socketio.protocol.Packet;
+import com.corundumstudio.socketio.transport.NamespaceClient;
+
+/**
+ * Groups packets delivery of broadcast operation by channel event loop.
+ * Each event loop gets a single task which writes to all of its channels
+ * and flushes them afterwards.
+ *
+ * Not thread-safe, should be used by single broadcast operation.
+ *
+ */
+public class BroadcastBatch {
+
+    private static final Logger log = LoggerFactory.getLogger(BroadcastBatch.class);
+
+    private static class ChannelEntry {
+
+        final ClientHead client;
+        final Transport transport;
+        final Channel channel;
+
+        ChannelEntry(ClientHead client, Transport transport, Channel channel) {
+            this.client = client;
+            this.transport = transport;
+            this.channel = channel;
+        }
+
+    }
+
+    private final Map<EventLoop, List<ChannelEntry>> entries = new HashMap<EventLoop, List<ChannelEntry>>();
+
+    /**
+     * Send packet to client. Delivery is deferred
+     * till {@link #flush()} invocation.
+     *
+     * @param client - receiver
+     * @param packet - packet to send
+     */
+    public void send(SocketIOClient client, Packet packet) {
+        if (client instanceof NamespaceClient) {
+            ((NamespaceClient) client).send(packet, this);
+        } else {
+            client.send(packet);
+        }
+    }
+
+    void add(ClientHead client, Transport transport, Channel channel) {
+        EventLoop eventLoop = channel.eventLoop();
+        List<ChannelEntry> list = entries.get(eventLoop);
+        if (list == null) {
+            list = new ArrayList<ChannelEntry>();
+            entries.put(eventLoop, list);
+        }
+        list.add(new ChannelEntry(client, transport, channel));
+    }
+
+    /**
+     * Deliver all deferred packets
+     */
+    public void flush() {
+        for (Entry<EventLoop, List<ChannelEntry>> entry : entries.entrySet()) {
+            final List<ChannelEntry> list = entry.getValue();
+            EventLoop eventLoop = entry.getKey();
+            if (eventLoop.inEventLoop()) {
+                write(list);
+                continue;
+            }
+
+            try {
+                eventLoop.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        write(list);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                log.debug("Can't deliver packets to {} channels, event loop has been shut down", list.size());
+            }
+        }
+        entries.clear();
+    }
+
+    private static void write(List<ChannelEntry> list) {
+        for (ChannelEntry entry : list) {
+            entry.channel.write(new OutPacketMessage(entry.client, entry.transport));
+        }
+        for (ChannelEntry entry : list) {
+            entry.channel.flush();
+        }
+    }
+
+}
@@ -23,6 +23,7 @@ import com.corundumstudio.socketio.ack.AckManager;
 import com.corundumstudio.socketio.messages.OutPacketMessage;
 import com.corundumstudio.socketio.namespace.Namespace;
 import com.corundumstudio.socketio.protocol.Packet;
+import com.corundumstudio.socketio.protocol.PacketCodec;
 import com.corundumstudio.socketio.protocol.PacketType;
 import com.corundumstudio.socketio.scheduler.CancelableScheduler;
 import com.corundumstudio.socketio.scheduler.SchedulerKey;
@@ -51,6 +52,8 @@ public class ClientHead {
 
     public static final AttributeKey<ClientHead> CLIENT = AttributeKey.<ClientHead>valueOf("client");
 
+    private static final String CODEC_PARAM = "codec";
+
     private final AtomicBoolean disconnected = new AtomicBoolean();
     private final Map<Namespace, NamespaceClient> namespaceClients = PlatformDependent.newConcurrentHashMap();
     private final Map<Transport, TransportState> channels = new HashMap<Transport, TransportState>(2);
@@ -66,6 +69,10 @@ public class ClientHead {
 
     private Packet lastBinaryPacket;
 
+    private volatile int pollingBatchSize;
+
+    private final PacketCodec packetCodec;
+
     // TODO use lazy set
     private volatile Transport currentTransport;
 
@@ -81,6 +88,8 @@ public class ClientHead {
         this.currentTransport = transport;
         this.disconnectScheduler = disconnectScheduler;
         this.configuration = configuration;
+        this.pollingBatchSize = configuration.getPollingBatchSize();
+        this.packetCodec = getPacketCodec(configuration, handshakeData);
 
         channels.put(Transport.POLLING, new TransportState());
         channels.put(Transport.WEBSOCKET, new TransportState());
@@ -135,6 +144,29 @@ public class ClientHead {
     }
 
     public ChannelFuture send(Packet packet, Transport transport) {
+        Channel channel = enqueue(packet, transport);
+        if (channel == null) {
+            return null;
+        }
+        return sendPackets(transport, channel);
+    }
+
+    /**
+     * Enqueues packet and defers its delivery
+     * till <code>batch</code> flush.
+     *
+     * @param packet - packet to send
+     * @param batch - broadcast batch
+     */
+    public void send(Packet packet, BroadcastBatch batch) {
+        Transport transport = getCurrentTransport();
+        Channel channel = enqueue(packet, transport);
+        if (channel != null) {
+            batch.add(this, transport, channel);
+        }
+    }
+
+    private Channel enqueue(Packet packet, Transport transport) {
         TransportState state = channels.get(transport);
         state.getPacketsQueue().add(packet);
 
@@ -143,7 +175,7 @@ public class ClientHead {
                 || (transport == Transport.POLLING && channel.attr(EncoderHandler.WRITE_ONCE).get() != null)) {
             return null;
         }
-        return sendPackets(transport, channel);
+        return channel;
     }
 
     private ChannelFuture sendPackets(Transport transport, Channel channel) {
@@ -161,10 +193,23 @@ public class ClientHead {
         return namespaceClients.get(namespace);
     }
 
+    /**
+     * Returns client of namespace, creates it if client
+     * hasn't connected to namespace yet. Repeated CONNECT packet
+     * mustn't take one more slot in namespace.
+     *
+     * @param namespace - namespace
+     * @return namespace client
+     */
     public NamespaceClient addNamespaceClient(Namespace namespace) {
-        NamespaceClient client = new NamespaceClient(this, namespace);
-        namespaceClients.put(namespace, client);
-        return client;
+        synchronized (namespaceClients) {
+            NamespaceClient client = namespaceClients.get(namespace);
+            if (client == null) {
+                client = new NamespaceClient(this, namespace);
+                namespaceClients.put(namespace, client);
+            }
+            return client;
+        }
     }
 
     public Set<Namespace> getNamespaces() {
@@ -179,6 +224,7 @@ public class ClientHead {
         cancelPingTimeout();
 
         disconnected.set(true);
+        setLastBinaryPacket(null);
         for (NamespaceClient client : namespaceClients.values()) {
             client.onDisconnect();
         }
@@ -262,10 +308,48 @@ public class ClientHead {
     }
 
     public void setLastBinaryPacket(Packet lastBinaryPacket) {
+        Packet prevPacket = this.lastBinaryPacket;
+        if (prevPacket != null && prevPacket != lastBinaryPacket) {
+            prevPacket.releaseAttachments();
+        }
         this.lastBinaryPacket = lastBinaryPacket;
     }
     public Packet getLastBinaryPacket() {
         return lastBinaryPacket;
     }
 
-}
+    /**
+     * Amount of packets sent in single polling response
+     * if adaptive batch size is used
+     *
+     * @return amount of packets
+     */
+    public int getPollingBatchSize() {
+        return pollingBatchSize;
+    }
+
+    public void setPollingBatchSize(int pollingBatchSize) {
+        this.pollingBatchSize = pollingBatchSize;
+    }
+
+    private static PacketCodec getPacketCodec(Configuration configuration, HandshakeData handshakeData) {
+        if (configuration.getPacketCodecs().isEmpty() || handshakeData.getUrlParams() == null) {
+            return null;
+        }
+        String name = handshakeData.getSingleUrlParam(CODEC_PARAM);
+        if (name == null) {
+            return null;
+        }
+        return configuration.getPacketCodecs().get(name);
+    }
+
+    /**
+     * Codec selected by client during handshake
+     *
+     * @return codec or <code>null</code> if default text encoding is used
+     */
+    public PacketCodec getPacketCodec() {
+        return packetCodec;
+    }
+
+}
\ No newline at end of file
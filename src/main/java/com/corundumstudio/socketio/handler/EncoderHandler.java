@@ -23,6 +23,7 @@ import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.List;
 import java.util.Queue;
+import java.util.concurrent.TimeUnit;
 import java.util.jar.Attributes;
 import java.util.jar.Manifest;
 
@@ -39,7 +40,9 @@ import com.corundumstudio.socketio.messages.OutPacketMessage;
 import com.corundumstudio.socketio.messages.XHROptionsMessage;
 import com.corundumstudio.socketio.messages.XHRPostMessage;
 import com.corundumstudio.socketio.protocol.Packet;
+import com.corundumstudio.socketio.protocol.PacketCodec;
 import com.corundumstudio.socketio.protocol.PacketEncoder;
+import com.corundumstudio.socketio.protocol.PacketType;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufOutputStream;
@@ -76,6 +79,7 @@ public class EncoderHandler extends ChannelOutboundHandlerAdapter {
     public static final AttributeKey<Boolean> B64 = AttributeKey.valueOf("b64");
     public static final AttributeKey<Integer> JSONP_INDEX = AttributeKey.valueOf("jsonpIndex");
     public static final AttributeKey<Boolean> WRITE_ONCE = AttributeKey.valueOf("writeOnce");
+    public static final AttributeKey<Boolean> FLUSH_SCHEDULED = AttributeKey.valueOf("flushScheduled");
 
     private static final Logger log = LoggerFactory.getLogger(EncoderHandler.class);
 
@@ -227,6 +231,41 @@ public class EncoderHandler extends ChannelOutboundHandlerAdapter {
         }
     }
 
+    @Override
+    public void flush(ChannelHandlerContext ctx) throws Exception {
+        if (ctx.channel().hasAttr(FLUSH_SCHEDULED)
+                && ctx.channel().attr(FLUSH_SCHEDULED).get() != null) {
+            // coalesced with already scheduled flush
+            return;
+        }
+        super.flush(ctx);
+    }
+
+    @Override
+    public void close(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+        if (ctx.channel().hasAttr(FLUSH_SCHEDULED)
+                && ctx.channel().attr(FLUSH_SCHEDULED).getAndSet(null) != null) {
+            ctx.flush();
+        }
+        super.close(ctx, promise);
+    }
+
+    private void scheduleFlush(final ChannelHandlerContext ctx) {
+        final Attribute<Boolean> attr = ctx.channel().attr(FLUSH_SCHEDULED);
+        if (attr.setIfAbsent(true) != null) {
+            return;
+        }
+
+        ctx.executor().schedule(new Runnable() {
+            @Override
+            public void run() {
+                if (attr.getAndSet(null) != null) {
+                    ctx.flush();
+                }
+            }
+        }, configuration.getWebsocketFlushDelay(), TimeUnit.MILLISECONDS);
+    }
+
     private void handleWebsocket(final OutPacketMessage msg, ChannelHandlerContext ctx, ChannelPromise promise) throws IOException {
         ChannelFutureList writeFutureList = new ChannelFutureList();
 
@@ -234,12 +273,27 @@ public class EncoderHandler extends ChannelOutboundHandlerAdapter {
             Queue<Packet> queue = msg.getClientHead().getPacketsQueue(msg.getTransport());
             Packet packet = queue.poll();
             if (packet == null) {
-                writeFutureList.setChannelPromise(promise);
                 break;
             }
 
-            final ByteBuf out = encoder.allocateBuffer(ctx.alloc());
-            encoder.encodePacket(packet, out, ctx.alloc(), true);
+            PacketCodec codec = msg.getClientHead().getPacketCodec();
+            if (codec != null && packet.getType() == PacketType.MESSAGE) {
+                ByteBuf out = encoder.allocateBuffer(ctx.alloc());
+                encoder.encodeBinaryPacket(packet, codec, out);
+                if (log.isTraceEnabled()) {
+                    log.trace("Out message: {} sessionId: {}", ByteBufUtil.hexDump(out), msg.getSessionId());
+                }
+                writeFutureList.add(ctx.channel().write(new BinaryWebSocketFrame(out)));
+                continue;
+            }
+
+            final ByteBuf out;
+            if (packet.isShared()) {
+                out = encoder.encodeSharedPacket(packet, ctx.alloc());
+            } else {
+                out = encoder.allocateBuffer(ctx.alloc());
+                encoder.encodePacket(packet, out, ctx.alloc(), true);
+            }
 
             WebSocketFrame res = new TextWebSocketFrame(out);
             if (log.isTraceEnabled()) {
@@ -247,7 +301,7 @@ public class EncoderHandler extends ChannelOutboundHandlerAdapter {
             }
 
             if (out.isReadable()) {
-                writeFutureList.add(ctx.channel().writeAndFlush(res));
+                writeFutureList.add(ctx.channel().write(res));
             } else {
                 out.release();
             }
@@ -255,13 +309,23 @@ public class EncoderHandler extends ChannelOutboundHandlerAdapter {
             for (ByteBuf buf : packet.getAttachments()) {
                 ByteBuf outBuf = encoder.allocateBuffer(ctx.alloc());
                 outBuf.writeByte(4);
-                outBuf.writeBytes(buf);
+                outBuf.writeBytes(buf, buf.readerIndex(), buf.readableBytes());
                 if (log.isTraceEnabled()) {
                     log.trace("Out attachment: {} sessionId: {}", ByteBufUtil.hexDump(outBuf), msg.getSessionId());
                 }
-                writeFutureList.add(ctx.channel().writeAndFlush(new BinaryWebSocketFrame(outBuf)));
+                writeFutureList.add(ctx.channel().write(new BinaryWebSocketFrame(outBuf)));
+            }
+        }
+
+        // all drained frames are flushed at once
+        if (!writeFutureList.isEmpty()) {
+            if (configuration.getWebsocketFlushDelay() > 0) {
+                scheduleFlush(ctx);
+            } else {
+                ctx.flush();
             }
         }
+        writeFutureList.setChannelPromise(promise);
     }
 
     private void handleHTTP(OutPacketMessage msg, ChannelHandlerContext ctx, ChannelPromise promise) throws IOException {
@@ -275,20 +339,42 @@ public class EncoderHandler extends ChannelOutboundHandlerAdapter {
             return;
         }
 
-        ByteBuf out = encoder.allocateBuffer(ctx.alloc());
+        ClientHead client = msg.getClientHead();
+        int limit = configuration.getPollingBatchSize();
+        if (configuration.isPollingBatchAdaptive()) {
+            limit = client.getPollingBatchSize();
+        }
+
         Boolean b64 = ctx.channel().attr(EncoderHandler.B64).get();
         if (b64 != null && b64) {
+            ByteBuf out = encoder.allocateBuffer(ctx.alloc());
             Integer jsonpIndex = ctx.channel().attr(EncoderHandler.JSONP_INDEX).get();
-            encoder.encodeJsonP(jsonpIndex, queue, out, ctx.alloc(), 50);
+            encoder.encodeJsonP(jsonpIndex, queue, out, ctx.alloc(), limit, configuration.getPollingBatchMaxBytes());
             String type = "application/javascript";
             if (jsonpIndex == null) {
                 type = "text/plain";
             }
             sendMessage(msg, channel, out, type, promise, HttpResponseStatus.OK);
         } else {
-            encoder.encodePackets(queue, out, ctx.alloc(), 50);
+            ByteBuf out = encoder.allocateCompositeBuffer(ctx.alloc());
+            encoder.encodePackets(queue, out, ctx.alloc(), limit, configuration.getPollingBatchMaxBytes(), client.getPacketCodec());
             sendMessage(msg, channel, out, "application/octet-stream", promise, HttpResponseStatus.OK);
         }
+
+        if (configuration.isPollingBatchAdaptive()) {
+            client.setPollingBatchSize(nextPollingBatchSize(limit, !queue.isEmpty()));
+        }
+    }
+
+    /**
+     * Doubles batch size while client queue is backed up
+     * and halves it back to configured size once it's drained
+     */
+    private int nextPollingBatchSize(int limit, boolean backedUp) {
+        if (backedUp) {
+            return (int) Math.min((long) limit * 2, configuration.getMaxPollingBatchSize());
+        }
+        return Math.max(limit / 2, configuration.getPollingBatchSize());
     }
 
     /**
@@ -333,6 +419,10 @@ public class EncoderHandler extends ChannelOutboundHandlerAdapter {
             f.addListener(this);
         }
 
+        public boolean isEmpty() {
+            return futureList.isEmpty();
+        }
+
         public void setChannelPromise(ChannelPromise p) {
             promise = p;
             validate();
@@ -0,0 +1,196 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.misc;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Set of non-negative <code>int</code> values stored
+ * in open-addressing table without boxing.
+ * <p>
+ * Reads and iteration are lock-free and weakly consistent,
+ * modifications are synchronized. Values are never moved
+ * inside table, so iteration returns each value
+ * present during whole iteration exactly once.
+ */
+public class ConcurrentIntSet {
+
+    private static final class TableIterator implements IntIterator {
+
+        private final AtomicIntegerArray table;
+        private int index = -1;
+        private int next = -1;
+
+        TableIterator(AtomicIntegerArray table) {
+            this.table = table;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next >= 0) {
+                return true;
+            }
+            while (++index < table.length()) {
+                int entry = table.get(index);
+                if (entry > 0) {
+                    next = entry - 1;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public int next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int value = next;
+            next = -1;
+            return value;
+        }
+
+    }
+
+    // values are stored incremented by one
+    private static final int FREE = 0;
+    private static final int REMOVED = -1;
+
+    private static final int MIN_CAPACITY = 4;
+
+    private volatile AtomicIntegerArray table = new AtomicIntegerArray(MIN_CAPACITY);
+    private volatile int size;
+    // amount of not free entries including removed
+    private int used;
+
+    private static int index(int value, int mask) {
+        int hash = value * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    public boolean contains(int value) {
+        AtomicIntegerArray table = this.table;
+        int entry = value + 1;
+        int mask = table.length() - 1;
+        for (int i = index(value, mask), n = 0; n < table.length(); i = (i + 1) & mask, n++) {
+            int current = table.get(i);
+            if (current == entry) {
+                return true;
+            }
+            if (current == FREE) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param value - non-negative value
+     * @return <code>true</code> if value has been added
+     */
+    public synchronized boolean add(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("value can't be negative: " + value);
+        }
+        if (contains(value)) {
+            return false;
+        }
+
+        if ((used + 1) * 2 > table.length()) {
+            rehash(size + 1);
+        }
+
+        AtomicIntegerArray table = this.table;
+        int mask = table.length() - 1;
+        int i = index(value, mask);
+        while (true) {
+            int current = table.get(i);
+            if (current == FREE || current == REMOVED) {
+                if (current == FREE) {
+                    used++;
+                }
+                table.set(i, value + 1);
+                size++;
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    /**
+     * @param value - value
+     * @return <code>true</code> if value has been removed
+     */
+    public synchronized boolean remove(int value) {
+        AtomicIntegerArray table = this.table;
+        int entry = value + 1;
+        int mask = table.length() - 1;
+        for (int i = index(value, mask), n = 0; n < table.length(); i = (i + 1) & mask, n++) {
+            int current = table.get(i);
+            if (current == entry) {
+                table.set(i, REMOVED);
+                size--;
+                if (size * 8 < table.length() && table.length() > MIN_CAPACITY) {
+                    rehash(size);
+                }
+                return true;
+            }
+            if (current == FREE) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private void rehash(int expectedSize) {
+        // table is doubled when it's half full, so load factor stays between 1/4 and 1/2
+        // after growth and between 1/6 and 1/3 after shrinking
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 3) {
+            capacity <<= 1;
+        }
+
+        AtomicIntegerArray oldTable = this.table;
+        AtomicIntegerArray table = new AtomicIntegerArray(capacity);
+        int mask = capacity - 1;
+        for (int j = 0; j < oldTable.length(); j++) {
+            int entry = oldTable.get(j);
+            if (entry > 0) {
+                int i = index(entry - 1, mask);
+                while (table.get(i) != FREE) {
+                    i = (i + 1) & mask;
+                }
+                table.set(i, entry);
+            }
+        }
+        used = size;
+        this.table = table;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public IntIterator iterator() {
+        return new TableIterator(table);
+    }
+
+}
@@ -0,0 +1,157 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.misc;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.CharsetUtil;
+
+/**
+ * Set of strings which could be looked up by
+ * their UTF-8 encoded bytes without allocations.
+ * <p>
+ * Lookups are lock-free, modifications are copy-on-write
+ * and supposed to be rare.
+ */
+public class InternedStrings {
+
+    private static final class Entry {
+
+        final String value;
+        final byte[] bytes;
+        final int hash;
+
+        Entry(String value) {
+            this.value = value;
+            this.bytes = value.getBytes(CharsetUtil.UTF_8);
+            this.hash = hash(bytes);
+        }
+
+        boolean matches(ByteBuf buf, int index, int length, int hash) {
+            if (this.hash != hash || bytes.length != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (bytes[i] != buf.getByte(index + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+    }
+
+    private volatile Entry[] table = new Entry[16];
+    private int size;
+
+    private static int hash(byte[] bytes) {
+        int hash = 1;
+        for (byte b : bytes) {
+            hash = 31 * hash + b;
+        }
+        return spread(hash);
+    }
+
+    private static int hash(ByteBuf buf, int index, int length) {
+        int hash = 1;
+        for (int i = index; i < index + length; i++) {
+            hash = 31 * hash + buf.getByte(i);
+        }
+        return spread(hash);
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Returns string which UTF-8 encoded form is equal
+     * to <code>length</code> bytes of <code>buf</code> starting from <code>index</code>
+     *
+     * @param buf - buffer
+     * @param index - start index
+     * @param length - amount of bytes
+     * @return string or <code>null</code> if it doesn't belong to this set
+     */
+    public String get(ByteBuf buf, int index, int length) {
+        Entry[] table = this.table;
+        int hash = hash(buf, index, length);
+        int mask = table.length - 1;
+        for (int i = hash & mask;; i = (i + 1) & mask) {
+            Entry entry = table[i];
+            if (entry == null) {
+                return null;
+            }
+            if (entry.matches(buf, index, length, hash)) {
+                return entry.value;
+            }
+        }
+    }
+
+    public synchronized void add(String value) {
+        if (contains(value)) {
+            return;
+        }
+
+        Entry[] table = this.table;
+        if ((size + 1) * 2 > table.length) {
+            table = new Entry[table.length * 2];
+            for (Entry entry : this.table) {
+                if (entry != null) {
+                    put(table, entry);
+                }
+            }
+        } else {
+            table = table.clone();
+        }
+        put(table, new Entry(value));
+        size++;
+        this.table = table;
+    }
+
+    public synchronized void remove(String value) {
+        if (!contains(value)) {
+            return;
+        }
+
+        Entry[] table = new Entry[this.table.length];
+        for (Entry entry : this.table) {
+            if (entry != null && !entry.value.equals(value)) {
+                put(table, entry);
+            }
+        }
+        size--;
+        this.table = table;
+    }
+
+    public boolean contains(String value) {
+        for (Entry entry : table) {
+            if (entry != null && entry.value.equals(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void put(Entry[] table, Entry entry) {
+        int mask = table.length - 1;
+        int i = entry.hash & mask;
+        while (table[i] != null) {
+            i = (i + 1) & mask;
+        }
+        table[i] = entry;
+    }
+
+}
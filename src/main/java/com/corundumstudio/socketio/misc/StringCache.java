@@ -0,0 +1,151 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.misc;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.CharsetUtil;
+
+/**
+ * Bounded cache of recently decoded strings, used for names
+ * which don't belong to {@link InternedStrings} set.
+ * <p>
+ * Each string occupies single slot chosen by its hash,
+ * so cache never grows and colliding strings evict each other.
+ * Lookups and updates are lock-free, entries are immutable.
+ */
+public class StringCache {
+
+    private static final class Entry {
+
+        final String value;
+        final byte[] bytes;
+        final int hash;
+
+        Entry(String value, byte[] bytes, int hash) {
+            this.value = value;
+            this.bytes = bytes;
+            this.hash = hash;
+        }
+
+        boolean matches(ByteBuf buf, int index, int length, int hash) {
+            if (this.hash != hash || bytes == null || bytes.length != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (bytes[i] != buf.getByte(index + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean matches(char[] chars, int offset, int length, int hash) {
+            if (this.hash != hash || bytes != null || value.length() != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (value.charAt(i) != chars[offset + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+    }
+
+    private final Entry[] table;
+    private final int maxLength;
+
+    /**
+     * @param capacity - amount of slots, rounded up to power of two
+     * @param maxLength - strings longer than this value are not cached
+     */
+    public StringCache(int capacity, int maxLength) {
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        this.table = new Entry[size];
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * Returns string decoded from <code>length</code> UTF-8 bytes
+     * of <code>buf</code> starting from <code>index</code>.
+     * Reader index of buffer is not changed.
+     *
+     * @param buf - buffer
+     * @param index - start index
+     * @param length - amount of bytes
+     * @return string
+     */
+    public String get(ByteBuf buf, int index, int length) {
+        if (length > maxLength) {
+            return buf.toString(index, length, CharsetUtil.UTF_8);
+        }
+
+        int hash = 1;
+        for (int i = index; i < index + length; i++) {
+            hash = 31 * hash + buf.getByte(i);
+        }
+        int slot = spread(hash) & (table.length - 1);
+        Entry entry = table[slot];
+        if (entry != null && entry.matches(buf, index, length, hash)) {
+            return entry.value;
+        }
+
+        byte[] bytes = new byte[length];
+        buf.getBytes(index, bytes);
+        String value = new String(bytes, CharsetUtil.UTF_8);
+        table[slot] = new Entry(value, bytes, hash);
+        return value;
+    }
+
+    /**
+     * Returns string of <code>length</code> characters
+     * of <code>chars</code> starting from <code>offset</code>.
+     *
+     * @param chars - characters
+     * @param offset - start offset
+     * @param length - amount of characters
+     * @return string
+     */
+    public String get(char[] chars, int offset, int length) {
+        if (length > maxLength) {
+            return new String(chars, offset, length);
+        }
+
+        // same as String.hashCode
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + chars[i];
+        }
+        int slot = spread(hash) & (table.length - 1);
+        Entry entry = table[slot];
+        if (entry != null && entry.matches(chars, offset, length, hash)) {
+            return entry.value;
+        }
+
+        String value = new String(chars, offset, length);
+        table[slot] = new Entry(value, null, hash);
+        return value;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+}
@@ -0,0 +1,51 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.namespace;
+
+import java.util.BitSet;
+import java.util.NoSuchElementException;
+
+import com.corundumstudio.socketio.misc.IntIterator;
+
+/**
+ * Iterates over indexes of set bits
+ */
+class BitSetIterator implements IntIterator {
+
+    private final BitSet bits;
+    private int next;
+
+    BitSetIterator(BitSet bits) {
+        this.bits = bits;
+        this.next = bits.nextSetBit(0);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return next >= 0;
+    }
+
+    @Override
+    public int next() {
+        if (next < 0) {
+            throw new NoSuchElementException();
+        }
+        int result = next;
+        next = bits.nextSetBit(next + 1);
+        return result;
+    }
+
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.namespace;
+
+import io.netty.util.internal.PlatformDependent;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Rooms joined by each client session.
+ * <p>
+ * Entries are reclaimed the same way as rooms of {@link RoomRegistry}:
+ * leave which makes entry empty closes it under its lock, so concurrent
+ * join can't add rooms to it and retries with a new entry instead.
+ */
+class ClientRooms {
+
+    private static final class Entry {
+
+        final Set<String> rooms = Collections.newSetFromMap(PlatformDependent.<String, Boolean>newConcurrentHashMap());
+        boolean closed;
+
+        boolean add(Collection<String> names) {
+            synchronized (rooms) {
+                if (closed) {
+                    return false;
+                }
+                rooms.addAll(names);
+                return true;
+            }
+        }
+
+        /**
+         * @return <code>true</code> if entry became empty and has been closed
+         */
+        boolean remove(Collection<String> names) {
+            synchronized (rooms) {
+                if (!rooms.removeAll(names) || !rooms.isEmpty()) {
+                    return false;
+                }
+                closed = true;
+                return true;
+            }
+        }
+
+        void close() {
+            synchronized (rooms) {
+                closed = true;
+            }
+        }
+
+    }
+
+    private final ConcurrentMap<UUID, Entry> entries = PlatformDependent.newConcurrentHashMap();
+
+    public void join(UUID sessionId, Collection<String> rooms) {
+        // entry is never empty unless it's closed
+        if (rooms.isEmpty()) {
+            return;
+        }
+
+        while (true) {
+            Entry entry = entries.get(sessionId);
+            if (entry == null) {
+                entry = new Entry();
+                Entry oldEntry = entries.putIfAbsent(sessionId, entry);
+                if (oldEntry != null) {
+                    entry = oldEntry;
+                }
+            }
+            if (entry.add(rooms)) {
+                return;
+            }
+            // entry has been reclaimed concurrently
+            entries.remove(sessionId, entry);
+        }
+    }
+
+    public void leave(UUID sessionId, Collection<String> rooms) {
+        Entry entry = entries.get(sessionId);
+        if (entry != null && entry.remove(rooms)) {
+            entries.remove(sessionId, entry);
+        }
+    }
+
+    /**
+     * @param sessionId - client session id
+     * @return rooms of client or <code>null</code> if client hasn't joined any room
+     */
+    public Set<String> get(UUID sessionId) {
+        Entry entry = entries.get(sessionId);
+        if (entry == null) {
+            return null;
+        }
+        return entry.rooms;
+    }
+
+    /**
+     * Removes all rooms of client
+     *
+     * @param sessionId - client session id
+     * @return removed rooms or <code>null</code> if client hasn't joined any room
+     */
+    public Set<String> remove(UUID sessionId) {
+        Entry entry = entries.remove(sessionId);
+        if (entry == null) {
+            return null;
+        }
+        entry.close();
+        return entry.rooms;
+    }
+
+}
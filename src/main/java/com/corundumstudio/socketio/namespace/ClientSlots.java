@@ -0,0 +1,82 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.namespace;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.corundumstudio.socketio.SocketIOClient;
+
+/**
+ * Assigns dense <code>int</code> ids to namespace clients.
+ * Ids of removed clients are reused, so ids stay
+ * below maximum amount of simultaneously connected clients.
+ * <p>
+ * Lookups are lock-free, modifications are synchronized.
+ */
+class ClientSlots {
+
+    private volatile AtomicReferenceArray<SocketIOClient> clients = new AtomicReferenceArray<SocketIOClient>(16);
+    private int[] freeSlots = new int[16];
+    private int freeSlotsCount;
+    private int nextSlot;
+
+    public synchronized int add(SocketIOClient client) {
+        int slot;
+        if (freeSlotsCount > 0) {
+            slot = freeSlots[--freeSlotsCount];
+        } else {
+            slot = nextSlot++;
+        }
+
+        AtomicReferenceArray<SocketIOClient> clients = this.clients;
+        if (slot >= clients.length()) {
+            AtomicReferenceArray<SocketIOClient> newClients = new AtomicReferenceArray<SocketIOClient>(clients.length() * 2);
+            for (int i = 0; i < clients.length(); i++) {
+                newClients.set(i, clients.get(i));
+            }
+            clients = newClients;
+        }
+        clients.set(slot, client);
+        this.clients = clients;
+        return slot;
+    }
+
+    public synchronized void remove(int slot, SocketIOClient client) {
+        if (!clients.compareAndSet(slot, client, null)) {
+            return;
+        }
+
+        if (freeSlotsCount == freeSlots.length) {
+            int[] newFreeSlots = new int[freeSlots.length * 2];
+            System.arraycopy(freeSlots, 0, newFreeSlots, 0, freeSlotsCount);
+            freeSlots = newFreeSlots;
+        }
+        freeSlots[freeSlotsCount++] = slot;
+    }
+
+    /**
+     * @param slot - client id
+     * @return client or <code>null</code> if slot is free
+     */
+    public SocketIOClient get(int slot) {
+        AtomicReferenceArray<SocketIOClient> clients = this.clients;
+        if (slot >= clients.length()) {
+            return null;
+        }
+        return clients.get(slot);
+    }
+
+}
@@ -15,9 +15,10 @@
  */
 package com.corundumstudio.socketio.namespace;
 
-import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
@@ -31,12 +32,17 @@ import com.corundumstudio.socketio.AckRequest;
 import com.corundumstudio.socketio.BroadcastOperations;
 import com.corundumstudio.socketio.Configuration;
 import com.corundumstudio.socketio.MultiTypeArgs;
+import com.corundumstudio.socketio.RoomsBroadcastOperations;
 import com.corundumstudio.socketio.SingleRoomBroadcastOperations;
 import com.corundumstudio.socketio.SocketIOClient;
 import com.corundumstudio.socketio.SocketIONamespace;
 import com.corundumstudio.socketio.annotation.ScannerEngine;
+import com.corundumstudio.socketio.handler.BroadcastBatch;
 import com.corundumstudio.socketio.listener.*;
+import com.corundumstudio.socketio.misc.ConcurrentIntSet;
+import com.corundumstudio.socketio.misc.IntIterator;
 import com.corundumstudio.socketio.protocol.JsonSupport;
+import com.corundumstudio.socketio.protocol.PacketCodec;
 import com.corundumstudio.socketio.protocol.Packet;
 import com.corundumstudio.socketio.store.StoreFactory;
 import com.corundumstudio.socketio.store.pubsub.JoinLeaveMessage;
@@ -62,13 +68,15 @@ public class Namespace implements SocketIONamespace {
     private final Queue<PingListener> pingListeners = new ConcurrentLinkedQueue<PingListener>();
     private final Queue<EventInterceptor> eventInterceptors = new ConcurrentLinkedQueue<EventInterceptor>();
 
-    private final Map<UUID, SocketIOClient> allClients = PlatformDependent.newConcurrentHashMap();
-    private final ConcurrentMap<String, Set<UUID>> roomClients = PlatformDependent.newConcurrentHashMap();
-    private final ConcurrentMap<UUID, Set<String>> clientRooms = PlatformDependent.newConcurrentHashMap();
+    private final Map<UUID, NamespaceClient> allClients = PlatformDependent.newConcurrentHashMap();
+    private final ClientSlots clientSlots = new ClientSlots();
+    private final RoomRegistry roomClients = new RoomRegistry();
+    private final ClientRooms clientRooms = new ClientRooms();
 
     private final String name;
     private final AckMode ackMode;
     private final JsonSupport jsonSupport;
+    private final Collection<PacketCodec> packetCodecs;
     private final StoreFactory storeFactory;
     private final ExceptionListener exceptionListener;
 
@@ -76,13 +84,22 @@ public class Namespace implements SocketIONamespace {
         super();
         this.name = name;
         this.jsonSupport = configuration.getJsonSupport();
+        this.packetCodecs = configuration.getPacketCodecs().values();
         this.storeFactory = configuration.getStoreFactory();
         this.exceptionListener = configuration.getExceptionListener();
         this.ackMode = configuration.getAckMode();
     }
 
-    public void addClient(SocketIOClient client) {
+    /**
+     * Adds client to namespace
+     *
+     * @param client - namespace client
+     * @return dense id of client
+     */
+    public int addClient(NamespaceClient client) {
+        int slot = clientSlots.add(client);
         allClients.put(client.getSessionId(), client);
+        return slot;
     }
 
     @Override
@@ -103,6 +120,9 @@ public class Namespace implements SocketIONamespace {
         }
         entry.addListener(listener);
         jsonSupport.addEventMapping(name, eventName, eventClass);
+        for (PacketCodec codec : packetCodecs) {
+            codec.addEventMapping(name, eventName, eventClass);
+        }
     }
     
     @Override
@@ -110,6 +130,9 @@ public class Namespace implements SocketIONamespace {
         EventEntry<?> entry = eventListeners.remove(eventName);
         if (entry != null) {
             jsonSupport.removeEventMapping(name, eventName);
+            for (PacketCodec codec : packetCodecs) {
+                codec.removeEventMapping(name, eventName);
+            }
         }
     }
 
@@ -126,6 +149,9 @@ public class Namespace implements SocketIONamespace {
         }
         entry.addListener(listener);
         jsonSupport.addEventMapping(name, eventName, eventClass);
+        for (PacketCodec codec : packetCodecs) {
+            codec.addEventMapping(name, eventName, eventClass);
+        }
     }
 
     @Override
@@ -185,15 +211,29 @@ public class Namespace implements SocketIONamespace {
     }
 
     public void onDisconnect(SocketIOClient client) {
-        Set<String> joinedRooms = client.getAllRooms();        
-        allClients.remove(client.getSessionId());
+        Set<String> rooms;
+        NamespaceClient namespaceClient = allClients.get(client.getSessionId());
+        if (namespaceClient == null) {
+            rooms = clientRooms.remove(client.getSessionId());
+        } else {
+            // serialized with join and leave of the same client,
+            // so its slot is freed only after it has left all rooms
+            synchronized (namespaceClient.getRoomsLock()) {
+                allClients.remove(client.getSessionId());
+                rooms = clientRooms.remove(client.getSessionId());
+                if (rooms != null) {
+                    roomClients.leave(rooms, namespaceClient.getSlot());
+                }
+                clientSlots.remove(namespaceClient.getSlot(), namespaceClient);
+            }
+        }
 
         // client must leave all rooms and publish the leave msg one by one on disconnect.
-        for (String joinedRoom : joinedRooms) {
-            leave(roomClients, joinedRoom, client.getSessionId());
-            storeFactory.pubSubStore().publish(PubSubType.LEAVE, new JoinLeaveMessage(client.getSessionId(), joinedRoom, getName()));
+        if (rooms != null) {
+            for (String room : rooms) {
+                storeFactory.pubSubStore().publish(PubSubType.LEAVE, new JoinLeaveMessage(client.getSessionId(), room, getName()));
+            }
         }
-        clientRooms.remove(client.getSessionId());
 
         try {
             for (DisconnectListener listener : disconnectListeners) {
@@ -239,7 +279,7 @@ public class Namespace implements SocketIONamespace {
 
     @Override
     public BroadcastOperations getBroadcastOperations() {
-        return new SingleRoomBroadcastOperations(getName(), getName(), allClients.values(), storeFactory);
+        return new SingleRoomBroadcastOperations(getName(), getName(), getAllClients(), storeFactory);
     }
 
     @Override
@@ -287,34 +327,75 @@ public class Namespace implements SocketIONamespace {
         storeFactory.pubSubStore().publish(PubSubType.JOIN, new JoinLeaveMessage(sessionId, room, getName()));
     }
 
+    public void joinRooms(Set<String> rooms, UUID sessionId) {
+        join(rooms, sessionId);
+        // single room messages are understood by nodes of all versions
+        for (String room : rooms) {
+            storeFactory.pubSubStore().publish(PubSubType.JOIN, new JoinLeaveMessage(sessionId, room, getName()));
+        }
+    }
+
     public void dispatch(String room, Packet packet) {
-        Iterable<SocketIOClient> clients = getRoomClients(room);
+        dispatch(getRoomClients(room), packet);
+    }
 
-        for (SocketIOClient socketIOClient : clients) {
-            socketIOClient.send(packet);
-        }
+    public void dispatch(Collection<String> rooms, Collection<String> exceptRooms, Packet packet) {
+        dispatch(getRoomClients(rooms, exceptRooms), packet);
     }
 
-    private <K, V> void join(ConcurrentMap<K, Set<V>> map, K key, V value) {
-        Set<V> clients = map.get(key);
-        if (clients == null) {
-            clients = Collections.newSetFromMap(PlatformDependent.<V, Boolean>newConcurrentHashMap());
-            Set<V> oldClients = map.putIfAbsent(key, clients);
-            if (oldClients != null) {
-                clients = oldClients;
-            }
+    private void dispatch(Iterable<SocketIOClient> clients, Packet packet) {
+        BroadcastBatch batch = new BroadcastBatch();
+        send(clients, packet, null, batch);
+        batch.flush();
+    }
+
+    /**
+     * Adds packet delivery to clients of this namespace into batch.
+     * Packet isn't shared if there are no clients.
+     *
+     * @param clients - clients of this namespace
+     * @param packet - packet to send
+     * @param excludedClient - client which shouldn't receive packet, could be <code>null</code>
+     * @param batch - broadcast batch
+     */
+    public void send(Iterable<SocketIOClient> clients, Packet packet, SocketIOClient excludedClient, BroadcastBatch batch) {
+        Iterator<SocketIOClient> iterator = clients.iterator();
+        if (!iterator.hasNext()) {
+            return;
         }
-        clients.add(value);
-        // object may be changed due to other concurrent call
-        if (clients != map.get(key)) {
-            // re-join if queue has been replaced
-            join(map, key, value);
+
+        Packet sharedPacket = packet.shareWithNsp(getName());
+        while (iterator.hasNext()) {
+            SocketIOClient client = iterator.next();
+            if (excludedClient != null && client.getSessionId().equals(excludedClient.getSessionId())) {
+                continue;
+            }
+            batch.send(client, sharedPacket);
         }
     }
 
     public void join(String room, UUID sessionId) {
-        join(roomClients, room, sessionId);
-        join(clientRooms, sessionId, room);
+        join(Collections.singleton(room), sessionId);
+    }
+
+    public void join(Set<String> rooms, UUID sessionId) {
+        NamespaceClient client = allClients.get(sessionId);
+        // client could be connected to other node
+        if (client == null) {
+            clientRooms.join(sessionId, rooms);
+            return;
+        }
+
+        synchronized (client.getRoomsLock()) {
+            // client has been disconnected concurrently
+            if (allClients.get(sessionId) != client) {
+                return;
+            }
+            // rooms are recorded before slot is added,
+            // so disconnect removes slot from all of them
+            clientRooms.join(sessionId, rooms);
+            roomClients.join(rooms, client.getSlot());
+        }
     }
 
     public void leaveRoom(String room, UUID sessionId) {
@@ -322,21 +403,32 @@ public class Namespace implements SocketIONamespace {
         storeFactory.pubSubStore().publish(PubSubType.LEAVE, new JoinLeaveMessage(sessionId, room, getName()));
     }
 
-    private <K, V> void leave(ConcurrentMap<K, Set<V>> map, K room, V sessionId) {
-        Set<V> clients = map.get(room);
-        if (clients == null) {
-            return;
-        }
-        clients.remove(sessionId);
-
-        if (clients.isEmpty()) {
-            map.remove(room, Collections.emptySet());
+    public void leaveRooms(Set<String> rooms, UUID sessionId) {
+        leave(rooms, sessionId);
+        for (String room : rooms) {
+            storeFactory.pubSubStore().publish(PubSubType.LEAVE, new JoinLeaveMessage(sessionId, room, getName()));
         }
     }
 
     public void leave(String room, UUID sessionId) {
-        leave(roomClients, room, sessionId);
-        leave(clientRooms, sessionId, room);
+        leave(Collections.singleton(room), sessionId);
+    }
+
+    public void leave(Set<String> rooms, UUID sessionId) {
+        NamespaceClient client = allClients.get(sessionId);
+        if (client == null) {
+            clientRooms.leave(sessionId, rooms);
+            return;
+        }
+
+        synchronized (client.getRoomsLock()) {
+            // client has left all rooms on disconnect
+            if (allClients.get(sessionId) != client) {
+                return;
+            }
+            roomClients.leave(rooms, client.getSlot());
+            clientRooms.leave(sessionId, rooms);
+        }
     }
 
     public Set<String> getRooms(SocketIOClient client) {
@@ -348,29 +440,98 @@ public class Namespace implements SocketIONamespace {
     }
 
     public Set<String> getRooms() {
-        return roomClients.keySet();
+        return roomClients.getRooms();
     }
 
+    /**
+     * Returns weakly consistent view of room clients.
+     * Clients joined or left during iteration may not be reflected.
+     *
+     * @param room - room name
+     * @return clients
+     */
     public Iterable<SocketIOClient> getRoomClients(String room) {
-        Set<UUID> sessionIds = roomClients.get(room);
+        final ConcurrentIntSet clients = roomClients.getMembers(room);
 
-        if (sessionIds == null) {
+        if (clients == null) {
             return Collections.emptyList();
         }
+        return new Iterable<SocketIOClient>() {
+            @Override
+            public Iterator<SocketIOClient> iterator() {
+                return new RoomIterator(clients.iterator(), clientSlots) {
+                    @Override
+                    boolean isMember(int slot) {
+                        return clients.contains(slot);
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Returns clients joined to any of <code>rooms</code>
+     * and none of <code>exceptRooms</code>. Each client
+     * is returned once even if it joined several rooms.
+     *
+     * @param rooms - rooms names
+     * @param exceptRooms - names of rooms which clients should be excluded
+     * @return clients
+     */
+    public Iterable<SocketIOClient> getRoomClients(final Collection<String> rooms, final Collection<String> exceptRooms) {
+        if (rooms.size() == 1 && exceptRooms.isEmpty()) {
+            return getRoomClients(rooms.iterator().next());
+        }
 
-        List<SocketIOClient> result = new ArrayList<SocketIOClient>();
-        for (UUID sessionId : sessionIds) {
-            SocketIOClient client = allClients.get(sessionId);
-            if(client != null) {
-                result.add(client);
+        final BitSet slots = new BitSet();
+        for (String room : rooms) {
+            ConcurrentIntSet clients = roomClients.getMembers(room);
+            if (clients != null) {
+                for (IntIterator iterator = clients.iterator(); iterator.hasNext();) {
+                    slots.set(iterator.next());
+                }
             }
         }
-        return result;
+        for (String room : exceptRooms) {
+            ConcurrentIntSet clients = roomClients.getMembers(room);
+            if (clients != null) {
+                for (IntIterator iterator = clients.iterator(); iterator.hasNext();) {
+                    slots.clear(iterator.next());
+                }
+            }
+        }
+
+        return new Iterable<SocketIOClient>() {
+            @Override
+            public Iterator<SocketIOClient> iterator() {
+                return new RoomIterator(new BitSetIterator(slots), clientSlots) {
+                    @Override
+                    boolean isMember(int slot) {
+                        return isJoined(rooms, slot) && !isJoined(exceptRooms, slot);
+                    }
+                };
+            }
+        };
+    }
+
+    private boolean isJoined(Collection<String> rooms, int slot) {
+        for (String room : rooms) {
+            ConcurrentIntSet clients = roomClients.getMembers(room);
+            if (clients != null && clients.contains(slot)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public RoomsBroadcastOperations to(String... rooms) {
+        return new RoomsBroadcastOperations(this, storeFactory).to(rooms);
     }
 
     @Override
     public Collection<SocketIOClient> getAllClients() {
-        return Collections.unmodifiableCollection(allClients.values());
+        return Collections.<SocketIOClient>unmodifiableCollection(allClients.values());
     }
 
     public JsonSupport getJsonSupport() {
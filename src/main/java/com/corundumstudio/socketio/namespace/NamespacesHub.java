@@ -17,19 +17,20 @@ package com.corundumstudio.socketio.namespace;
 
 import io.netty.util.internal.PlatformDependent;
 
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.List;
+import java.util.Iterator;
 import java.util.concurrent.ConcurrentMap;
 
 import com.corundumstudio.socketio.Configuration;
 import com.corundumstudio.socketio.SocketIOClient;
 import com.corundumstudio.socketio.SocketIONamespace;
-import com.corundumstudio.socketio.misc.CompositeIterable;
+import com.corundumstudio.socketio.misc.CompositeIterator;
+import com.corundumstudio.socketio.misc.InternedStrings;
 
 public class NamespacesHub {
 
     private final ConcurrentMap<String, SocketIONamespace> namespaces = PlatformDependent.newConcurrentHashMap();
+    private final InternedStrings namespaceNames = new InternedStrings();
     private final Configuration configuration;
 
     public NamespacesHub(Configuration configuration) {
@@ -43,18 +44,58 @@ public class NamespacesHub {
             Namespace oldNamespace = (Namespace) namespaces.putIfAbsent(name, namespace);
             if (oldNamespace != null) {
                 namespace = oldNamespace;
+            } else {
+                namespaceNames.add(name);
             }
         }
         return namespace;
     }
 
-    public Iterable<SocketIOClient> getRoomClients(String room) {
-        List<Iterable<SocketIOClient>> allClients = new ArrayList<Iterable<SocketIOClient>>();
-        for (SocketIONamespace namespace : namespaces.values()) {
-            Iterable<SocketIOClient> clients = ((Namespace)namespace).getRoomClients(room);
-            allClients.add(clients);
+    /**
+     * Returns clients of room in all namespaces.
+     * Namespaces are iterated lazily and those
+     * without such room are skipped.
+     *
+     * @param room - room name, <code>null</code> means all clients
+     * @return clients
+     */
+    public Iterable<SocketIOClient> getRoomClients(final String room) {
+        return new Iterable<SocketIOClient>() {
+            @Override
+            public Iterator<SocketIOClient> iterator() {
+                final Iterator<SocketIONamespace> iterator = namespaces.values().iterator();
+                return new CompositeIterator<SocketIOClient>(new Iterator<Iterator<SocketIOClient>>() {
+
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public Iterator<SocketIOClient> next() {
+                        return getClients((Namespace) iterator.next(), room).iterator();
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+
+                });
+            }
+        };
+    }
+
+    /**
+     * @param namespace - namespace
+     * @param room - room name, <code>null</code> means all clients
+     * @return clients of namespace room
+     */
+    public static Iterable<SocketIOClient> getClients(Namespace namespace, String room) {
+        if (room == null) {
+            return namespace.getAllClients();
         }
-        return new CompositeIterable<SocketIOClient>(allClients);
+        return namespace.getRoomClients(room);
     }
 
     public Namespace get(String name) {
@@ -64,10 +105,21 @@ public class NamespacesHub {
     public void remove(String name) {
         SocketIONamespace namespace = namespaces.remove(name);
         if (namespace != null) {
+            namespaceNames.remove(name);
             namespace.getBroadcastOperations().disconnect();
         }
     }
 
+    /**
+     * Names of all namespaces, used by decoder
+     * to resolve inbound namespace names without allocations
+     *
+     * @return names
+     */
+    public InternedStrings getNamespaceNames() {
+        return namespaceNames;
+    }
+
     public Collection<SocketIONamespace> getAllNamespaces() {
         return namespaces.values();
     }
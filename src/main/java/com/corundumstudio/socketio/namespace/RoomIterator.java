@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.namespace;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.corundumstudio.socketio.SocketIOClient;
+import com.corundumstudio.socketio.misc.IntIterator;
+
+/**
+ * Iterates over clients of room resolving their ids.
+ * Ids of already removed clients are skipped.
+ * <p>
+ * Id of removed client could be reused by new client while iteration
+ * is in progress, so membership of resolved client is checked again.
+ */
+abstract class RoomIterator implements Iterator<SocketIOClient> {
+
+    private final IntIterator slots;
+    private final ClientSlots clientSlots;
+    private SocketIOClient next;
+
+    RoomIterator(IntIterator slots, ClientSlots clientSlots) {
+        this.slots = slots;
+        this.clientSlots = clientSlots;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (next == null && slots.hasNext()) {
+            int slot = slots.next();
+            SocketIOClient client = clientSlots.get(slot);
+            if (client != null && isMember(slot)) {
+                next = client;
+            }
+        }
+        return next != null;
+    }
+
+    /**
+     * Checked after slot has been resolved to client
+     *
+     * @param slot - client id
+     * @return <code>true</code> if client is still member of room
+     */
+    abstract boolean isMember(int slot);
+
+    @Override
+    public SocketIOClient next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        SocketIOClient result = next;
+        next = null;
+        return result;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.namespace;
+
+import io.netty.util.internal.PlatformDependent;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+import com.corundumstudio.socketio.misc.ConcurrentIntSet;
+
+/**
+ * Rooms of namespace with their members ids.
+ * <p>
+ * Room is reclaimed by the leave which makes it empty. Reclaimed room
+ * is closed under its lock, so concurrent join can't add member to it
+ * and retries with a new room instead. Retry happens only if other
+ * threads have completed join and leave of the same room meanwhile.
+ */
+class RoomRegistry {
+
+    private static final class Room {
+
+        final ConcurrentIntSet members = new ConcurrentIntSet();
+        boolean closed;
+
+        boolean add(int slot) {
+            synchronized (members) {
+                if (closed) {
+                    return false;
+                }
+                members.add(slot);
+                return true;
+            }
+        }
+
+        /**
+         * @return <code>true</code> if room became empty and has been closed
+         */
+        boolean remove(int slot) {
+            synchronized (members) {
+                if (!members.remove(slot) || !members.isEmpty()) {
+                    return false;
+                }
+                closed = true;
+                return true;
+            }
+        }
+
+    }
+
+    private final ConcurrentMap<String, Room> rooms = PlatformDependent.newConcurrentHashMap();
+
+    public void join(String name, int slot) {
+        while (true) {
+            Room room = rooms.get(name);
+            if (room == null) {
+                room = new Room();
+                Room oldRoom = rooms.putIfAbsent(name, room);
+                if (oldRoom != null) {
+                    room = oldRoom;
+                }
+            }
+            if (room.add(slot)) {
+                return;
+            }
+            // room has been reclaimed concurrently
+            rooms.remove(name, room);
+        }
+    }
+
+    public void join(Collection<String> names, int slot) {
+        for (String name : names) {
+            join(name, slot);
+        }
+    }
+
+    public void leave(String name, int slot) {
+        Room room = rooms.get(name);
+        if (room != null && room.remove(slot)) {
+            rooms.remove(name, room);
+        }
+    }
+
+    public void leave(Collection<String> names, int slot) {
+        for (String name : names) {
+            leave(name, slot);
+        }
+    }
+
+    /**
+     * @param name - room name
+     * @return ids of room members or <code>null</code> if there is no such room
+     */
+    public ConcurrentIntSet getMembers(String name) {
+        Room room = rooms.get(name);
+        if (room == null) {
+            return null;
+        }
+        return room.members;
+    }
+
+    public Set<String> getRooms() {
+        return rooms.keySet();
+    }
+
+}
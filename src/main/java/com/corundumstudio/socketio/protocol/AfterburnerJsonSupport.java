@@ -0,0 +1,64 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.protocol;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+
+/**
+ * Jackson based JSON support which binds event arguments and
+ * ack results with bytecode generated (de)serializers
+ * instead of reflection.
+ * <p>
+ * Requires <code>com.fasterxml.jackson.module:jackson-module-afterburner</code>
+ * in classpath. Only public classes with public members are optimized,
+ * others are bound as usual.
+ *
+ * @see AfterburnerModule
+ */
+public class AfterburnerJsonSupport extends JacksonJsonSupport {
+
+    public AfterburnerJsonSupport() {
+        this(new Module[] {});
+    }
+
+    public AfterburnerJsonSupport(Module... modules) {
+        this((JsonFactory) null, modules);
+    }
+
+    /**
+     * @param factory - data format factory, <code>null</code> means JSON
+     * @param modules - additional Jackson modules
+     */
+    public AfterburnerJsonSupport(JsonFactory factory, Module... modules) {
+        super(factory, withAfterburner(modules));
+    }
+
+    private static Module[] withAfterburner(Module... modules) {
+        int length = 0;
+        if (modules != null) {
+            length = modules.length;
+        }
+        Module[] result = new Module[length + 1];
+        result[0] = new AfterburnerModule();
+        if (length > 0) {
+            System.arraycopy(modules, 0, result, 1, length);
+        }
+        return result;
+    }
+
+}
@@ -21,6 +21,7 @@ public class Event {
 
     private String name;
     private List<Object> args;
+    private boolean relay;
 
     public Event() {
     }
@@ -31,6 +32,17 @@ public class Event {
         this.args = args;
     }
 
+    /**
+     * @param name - event name
+     * @param args - event arguments
+     * @param relay - <code>true</code> if event should be kept in encoded form
+     *                as {@link RelayEvent}, arguments are not deserialized in this case
+     */
+    public Event(String name, List<Object> args, boolean relay) {
+        this(name, args);
+        this.relay = relay;
+    }
+
     public List<Object> getArgs() {
         return args;
     }
@@ -39,4 +51,8 @@ public class Event {
         return name;
     }
 
+    public boolean isRelay() {
+        return relay;
+    }
+
 }
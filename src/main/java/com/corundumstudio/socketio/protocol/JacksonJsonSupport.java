@@ -19,38 +19,50 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.corundumstudio.socketio.AckCallback;
+import com.corundumstudio.socketio.LazyArgument;
 import com.corundumstudio.socketio.MultiTypeAckCallback;
+import com.corundumstudio.socketio.misc.StringCache;
 import com.corundumstudio.socketio.namespace.Namespace;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerationException;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
 import com.fasterxml.jackson.databind.BeanDescription;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonDeserializer;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.JsonSerializer;
 import com.fasterxml.jackson.databind.Module;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationConfig;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.PrimitiveArrayDeserializers;
 import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
 import com.fasterxml.jackson.databind.jsonFormatVisitors.JsonArrayFormatVisitor;
 import com.fasterxml.jackson.databind.jsonFormatVisitors.JsonFormatTypes;
@@ -62,8 +74,11 @@ import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
 import com.fasterxml.jackson.databind.ser.std.StdSerializer;
 import com.fasterxml.jackson.databind.type.ArrayType;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufInputStream;
 import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
 import io.netty.util.internal.PlatformDependent;
 
 public class JacksonJsonSupport implements JsonSupport {
@@ -79,30 +94,40 @@ public class JacksonJsonSupport implements JsonSupport {
         @Override
         public AckArgs deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException,
                 JsonProcessingException {
+            if (!jp.isExpectedStartArrayToken()) {
+                throw new JsonMappingException(jp, "Ack args should be an array");
+            }
+
             List<Object> args = new ArrayList<Object>();
             AckArgs result = new AckArgs(args);
 
             ObjectMapper mapper = (ObjectMapper) jp.getCodec();
-            JsonNode root = mapper.readTree(jp);
             AckCallback<?> callback = currentAckClass.get();
-            Iterator<JsonNode> iter = root.iterator();
+            Class<?>[] resultClasses = null;
+            if (callback instanceof MultiTypeAckCallback) {
+                resultClasses = ((MultiTypeAckCallback) callback).getResultClasses();
+            }
+
             int i = 0;
-            while (iter.hasNext()) {
-                Object val;
+            while (true) {
+                JsonToken token = jp.nextToken();
+                if (token == JsonToken.END_ARRAY) {
+                    break;
+                }
 
                 Class<?> clazz = callback.getResultClass();
-                if (callback instanceof MultiTypeAckCallback) {
-                    MultiTypeAckCallback multiTypeAckCallback = (MultiTypeAckCallback) callback;
-                    clazz = multiTypeAckCallback.getResultClasses()[i];
+                if (resultClasses != null) {
+                    clazz = Object.class;
+                    if (i < resultClasses.length) {
+                        clazz = resultClasses[i];
+                    }
                 }
-
-                JsonNode arg = iter.next();
-                if (arg.isTextual() || arg.isBoolean()) {
+                if (token == JsonToken.VALUE_STRING
+                        || token == JsonToken.VALUE_TRUE || token == JsonToken.VALUE_FALSE) {
                     clazz = Object.class;
                 }
 
-                val = mapper.treeToValue(arg, clazz);
-                args.add(val);
+                args.add(mapper.readValue(jp, clazz));
                 i++;
             }
             return result;
@@ -110,6 +135,10 @@ public class JacksonJsonSupport implements JsonSupport {
 
     }
 
+    /**
+     * Not used anymore, event mappings are looked up by name characters.
+     */
+    @Deprecated
     public static class EventKey {
 
         private String namespaceName;
@@ -158,9 +187,6 @@ public class JacksonJsonSupport implements JsonSupport {
 
         private static final long serialVersionUID = 8178797221017768689L;
 
-        final Map<EventKey, List<Class<?>>> eventMapping = PlatformDependent.newConcurrentHashMap();
-
-
         protected EventDeserializer() {
             super(Event.class);
         }
@@ -168,51 +194,139 @@ public class JacksonJsonSupport implements JsonSupport {
         @Override
         public Event deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException,
                 JsonProcessingException {
-            ObjectMapper mapper = (ObjectMapper) jp.getCodec();
-            String eventName = jp.nextTextValue();
+            return readEvent(namespaceClass.get(), jp);
+        }
+
+    }
 
-            EventKey ek = new EventKey(namespaceClass.get(), eventName);
-            if (!eventMapping.containsKey(ek)) {
-                ek = new EventKey(Namespace.DEFAULT_NAME, eventName);
-                if (!eventMapping.containsKey(ek)) {
-                    return new Event(eventName, Collections.emptyList());
+    /**
+     * Event arguments readers resolved once on listener registration
+     */
+    private static final class EventPlan {
+
+        final String name;
+        final int hash;
+        final ObjectReader[] readers;
+        final boolean relay;
+
+        EventPlan(String name, ObjectReader[] readers, boolean relay) {
+            this.name = name;
+            this.hash = name.hashCode();
+            this.readers = readers;
+            this.relay = relay;
+        }
+
+        boolean matches(char[] chars, int offset, int length, int hash) {
+            if (this.hash != hash || name.length() != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (name.charAt(i) != chars[offset + i]) {
+                    return false;
                 }
             }
+            return true;
+        }
 
-            List<Object> eventArgs = new ArrayList<Object>();
-            Event event = new Event(eventName, eventArgs);
-            List<Class<?>> eventClasses = eventMapping.get(ek);
-            int i = 0;
-            while (true) {
-                JsonToken token = jp.nextToken();
-                if (token == JsonToken.END_ARRAY) {
-                    break;
+    }
+
+    /**
+     * Event plans of namespace which could be looked up
+     * by event name characters without allocations.
+     * Table contains plans of default namespace too,
+     * so single probe resolves event of any namespace.
+     * <p>
+     * Lookups are lock-free, modifications are copy-on-write.
+     */
+    private static final class EventPlans {
+
+        private volatile EventPlan[] table = new EventPlan[0];
+        private final Map<String, EventPlan> plans = new HashMap<String, EventPlan>();
+
+        EventPlan get(char[] chars, int offset, int length) {
+            EventPlan[] table = this.table;
+            if (table.length == 0) {
+                return null;
+            }
+            int hash = hash(chars, offset, length);
+            int mask = table.length - 1;
+            for (int i = spread(hash) & mask;; i = (i + 1) & mask) {
+                EventPlan plan = table[i];
+                if (plan == null) {
+                    return null;
                 }
-                if (i > eventClasses.size() - 1) {
-                    log.debug("Event {} has more args than declared in handler: {}", eventName, null);
-                    break;
+                if (plan.matches(chars, offset, length, hash)) {
+                    return plan;
                 }
-                Class<?> eventClass = eventClasses.get(i);
-                Object arg = mapper.readValue(jp, eventClass);
-                eventArgs.add(arg);
-                i++;
             }
-            return event;
+        }
+
+        void put(EventPlan plan) {
+            plans.put(plan.name, plan);
+        }
+
+        void remove(String name) {
+            plans.remove(name);
+        }
+
+        Collection<EventPlan> getPlans() {
+            return plans.values();
+        }
+
+        /**
+         * @param defaultPlans - plans of default namespace,
+         *                       overridden by plans with the same name
+         */
+        void rebuild(Collection<EventPlan> defaultPlans) {
+            Map<String, EventPlan> allPlans = new HashMap<String, EventPlan>();
+            for (EventPlan plan : defaultPlans) {
+                allPlans.put(plan.name, plan);
+            }
+            allPlans.putAll(plans);
+
+            int capacity = 2;
+            while (capacity < allPlans.size() * 2) {
+                capacity <<= 1;
+            }
+            EventPlan[] table = new EventPlan[capacity];
+            int mask = capacity - 1;
+            for (EventPlan plan : allPlans.values()) {
+                int i = spread(plan.hash) & mask;
+                while (table[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                table[i] = plan;
+            }
+            this.table = table;
+        }
+
+        // same as String.hashCode
+        private static int hash(char[] chars, int offset, int length) {
+            int hash = 0;
+            for (int i = offset; i < offset + length; i++) {
+                hash = 31 * hash + chars[i];
+            }
+            return hash;
+        }
+
+        private static int spread(int hash) {
+            return hash ^ (hash >>> 16);
         }
 
     }
 
+    /**
+     * Writes <code>byte[]</code> values as binary attachment placeholders
+     * collecting them to attachments list of current serialization call.
+     * Values are written as base64 strings if there is no such list.
+     */
     public static class ByteArraySerializer extends StdSerializer<byte[]>
     {
 
         private static final long serialVersionUID = 3420082888596468148L;
 
-        private final ThreadLocal<List<byte[]>> arrays = new ThreadLocal<List<byte[]>>() {
-            @Override
-            protected List<byte[]> initialValue() {
-                return new ArrayList<byte[]>();
-            };
-        };
+        private static final SerializedString PLACEHOLDER = new SerializedString("_placeholder");
+        private static final SerializedString NUM = new SerializedString("num");
 
         public ByteArraySerializer() {
             super(byte[].class);
@@ -227,11 +341,20 @@ public class JacksonJsonSupport implements JsonSupport {
         public void serialize(byte[] value, JsonGenerator jgen, SerializerProvider provider)
             throws IOException, JsonGenerationException
         {
-            Map<String, Object> map = new HashMap<String, Object>();
-            map.put("num", arrays.get().size());
-            map.put("_placeholder", true);
-            jgen.writeObject(map);
-            arrays.get().add(value);
+            @SuppressWarnings("unchecked")
+            List<ByteBuf> attachments = (List<ByteBuf>) provider.getAttribute(ATTACHMENTS_ATTRIBUTE);
+            if (attachments == null) {
+                jgen.writeBinary(provider.getConfig().getBase64Variant(), value, 0, value.length);
+                return;
+            }
+
+            jgen.writeStartObject();
+            jgen.writeFieldName(PLACEHOLDER);
+            jgen.writeBoolean(true);
+            jgen.writeFieldName(NUM);
+            jgen.writeNumber(attachments.size());
+            jgen.writeEndObject();
+            attachments.add(Unpooled.wrappedBuffer(value));
         }
 
         @Override
@@ -262,16 +385,241 @@ public class JacksonJsonSupport implements JsonSupport {
             }
         }
 
-        public List<byte[]> getArrays() {
-            return arrays.get();
+    }
+
+    /**
+     * Resolves binary attachment placeholders to attachment bytes,
+     * other values are deserialized as usual
+     */
+    private class ByteArrayDeserializer extends StdDeserializer<byte[]> {
+
+        private static final long serialVersionUID = -2531587340405232637L;
+
+        @SuppressWarnings("unchecked")
+        private final JsonDeserializer<byte[]> delegate = (JsonDeserializer<byte[]>) PrimitiveArrayDeserializers.forType(byte.class);
+
+        ByteArrayDeserializer() {
+            super(byte[].class);
+        }
+
+        @Override
+        public byte[] deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException {
+            List<ByteBuf> attachments = currentAttachments.get();
+            if (attachments == null || !jp.hasToken(JsonToken.START_OBJECT)) {
+                return delegate.deserialize(jp, ctxt);
+            }
+
+            boolean placeholder = false;
+            int num = -1;
+            while (jp.nextToken() == JsonToken.FIELD_NAME) {
+                String field = jp.getCurrentName();
+                jp.nextToken();
+                if ("_placeholder".equals(field)) {
+                    placeholder = jp.getValueAsBoolean();
+                } else if ("num".equals(field)) {
+                    num = jp.getValueAsInt(-1);
+                } else {
+                    jp.skipChildren();
+                }
+            }
+            if (!placeholder || num < 0 || num >= attachments.size()) {
+                throw new JsonMappingException(jp, "Can't find attachment by index: " + num);
+            }
+
+            ByteBuf attachment = attachments.get(num);
+            byte[] bytes = new byte[attachment.readableBytes()];
+            attachment.getBytes(attachment.readerIndex(), bytes);
+            return bytes;
+        }
+
+    }
+
+    private class LazyArgumentDeserializer extends StdDeserializer<LazyArgument> {
+
+        private static final long serialVersionUID = 2785371493364541378L;
+
+        LazyArgumentDeserializer() {
+            super(LazyArgument.class);
+        }
+
+        @Override
+        public LazyArgument deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException {
+            // parser reads from stream and doesn't expose source range,
+            // so argument tokens are copied, only binding is deferred
+            ByteArrayBuilder out = new ByteArrayBuilder();
+            JsonGenerator generator = jp.getCodec().getFactory().createGenerator(out);
+            generator.copyCurrentStructure(jp);
+            generator.close();
+            return new LazyArgument(out.toByteArray(), JacksonJsonSupport.this);
+        }
+
+        @Override
+        public LazyArgument getNullValue(DeserializationContext ctxt) {
+            return new LazyArgument(NULL_JSON, JacksonJsonSupport.this);
+        }
+
+    }
+
+    private static class LazyArgumentSerializer extends StdSerializer<LazyArgument> {
+
+        private static final long serialVersionUID = -2167153880513186537L;
+
+        LazyArgumentSerializer() {
+            super(LazyArgument.class);
+        }
+
+        @Override
+        public void serialize(LazyArgument value, JsonGenerator jgen, SerializerProvider provider) throws IOException {
+            jgen.writeRawValue(new RawJson(value.getBytes()));
+        }
+
+    }
+
+    /**
+     * Already encoded JSON value, written by generator without transcoding
+     */
+    private static class RawJson implements SerializableString {
+
+        private final byte[] bytes;
+        private String value;
+
+        RawJson(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public String getValue() {
+            if (value == null) {
+                value = new String(bytes, CharsetUtil.UTF_8);
+            }
+            return value;
+        }
+
+        @Override
+        public int charLength() {
+            return getValue().length();
+        }
+
+        @Override
+        public byte[] asUnquotedUTF8() {
+            return bytes;
+        }
+
+        @Override
+        public int appendUnquotedUTF8(byte[] buffer, int offset) {
+            if (offset + bytes.length > buffer.length) {
+                return -1;
+            }
+            System.arraycopy(bytes, 0, buffer, offset, bytes.length);
+            return bytes.length;
+        }
+
+        @Override
+        public int appendUnquoted(char[] buffer, int offset) {
+            return new SerializedString(getValue()).appendUnquoted(buffer, offset);
+        }
+
+        @Override
+        public int writeUnquotedUTF8(OutputStream out) throws IOException {
+            out.write(bytes);
+            return bytes.length;
+        }
+
+        @Override
+        public int putUnquotedUTF8(ByteBuffer buffer) {
+            if (bytes.length > buffer.remaining()) {
+                return -1;
+            }
+            buffer.put(bytes);
+            return bytes.length;
+        }
+
+        @Override
+        public char[] asQuotedChars() {
+            return new SerializedString(getValue()).asQuotedChars();
+        }
+
+        @Override
+        public byte[] asQuotedUTF8() {
+            return new SerializedString(getValue()).asQuotedUTF8();
+        }
+
+        @Override
+        public int appendQuotedUTF8(byte[] buffer, int offset) {
+            return new SerializedString(getValue()).appendQuotedUTF8(buffer, offset);
+        }
+
+        @Override
+        public int appendQuoted(char[] buffer, int offset) {
+            return new SerializedString(getValue()).appendQuoted(buffer, offset);
+        }
+
+        @Override
+        public int writeQuotedUTF8(OutputStream out) throws IOException {
+            return new SerializedString(getValue()).writeQuotedUTF8(out);
+        }
+
+        @Override
+        public int putQuotedUTF8(ByteBuffer buffer) {
+            return new SerializedString(getValue()).putQuotedUTF8(buffer);
         }
 
-        public void clear() {
-            arrays.set(new ArrayList<byte[]>());
+    }
+
+    private static class Args {
+
+        final String name;
+        final List<?> args;
+        final List<ByteBuf> attachments;
+
+        Args(String name, List<?> args, List<ByteBuf> attachments) {
+            this.name = name;
+            this.args = args;
+            this.attachments = attachments;
         }
 
     }
 
+    private static class ArgsSerializer extends StdSerializer<Args> {
+
+        private static final long serialVersionUID = -4391239146373462513L;
+
+        private static final int MAX_CACHED_NAMES = 1024;
+
+        private final Map<String, SerializableString> names = PlatformDependent.newConcurrentHashMap();
+
+        ArgsSerializer() {
+            super(Args.class);
+        }
+
+        private SerializableString getName(String name) {
+            SerializableString result = names.get(name);
+            if (result == null) {
+                result = new SerializedString(name);
+                if (names.size() < MAX_CACHED_NAMES) {
+                    names.put(name, result);
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public void serialize(Args value, JsonGenerator jgen, SerializerProvider provider) throws IOException {
+            if (value.attachments != null) {
+                // provider is created per serialization call
+                provider.setAttribute(ATTACHMENTS_ATTRIBUTE, value.attachments);
+            }
+            jgen.writeStartArray();
+            if (value.name != null) {
+                jgen.writeString(getName(value.name));
+            }
+            for (Object arg : value.args) {
+                provider.defaultSerializeValue(arg, jgen);
+            }
+            jgen.writeEndArray();
+        }
+
+    }
 
     private class ExBeanSerializerModifier extends BeanSerializerModifier {
 
@@ -287,19 +635,23 @@ public class JacksonJsonSupport implements JsonSupport {
             return super.modifyArraySerializer(config, valueType, beanDesc, serializer);
         }
 
-        public ByteArraySerializer getSerializer() {
-            return serializer;
-        }
-
     }
 
     protected final ExBeanSerializerModifier modifier = new ExBeanSerializerModifier();
     protected final ThreadLocal<String> namespaceClass = new ThreadLocal<String>();
     protected final ThreadLocal<AckCallback<?>> currentAckClass = new ThreadLocal<AckCallback<?>>();
-    protected final ObjectMapper objectMapper = new ObjectMapper();
+    protected final ThreadLocal<List<ByteBuf>> currentAttachments = new ThreadLocal<List<ByteBuf>>();
+    protected final ObjectMapper objectMapper;
+    private final ObjectWriter writer;
     protected final EventDeserializer eventDeserializer = new EventDeserializer();
+    private final ConcurrentMap<String, EventPlans> eventPlans = PlatformDependent.newConcurrentHashMap();
+    private final StringCache unknownEventNames = new StringCache(256, 128);
     protected final AckArgsDeserializer ackArgsDeserializer = new AckArgsDeserializer();
 
+    private static final Object ATTACHMENTS_ATTRIBUTE = ByteArraySerializer.class;
+
+    private static final byte[] NULL_JSON = "null".getBytes(CharsetUtil.UTF_8);
+
     protected static final Logger log = LoggerFactory.getLogger(JacksonJsonSupport.class);
 
     public JacksonJsonSupport() {
@@ -307,17 +659,37 @@ public class JacksonJsonSupport implements JsonSupport {
     }
 
     public JacksonJsonSupport(Module... modules) {
+        this((JsonFactory) null, modules);
+    }
+
+    /**
+     * Creates instance which uses specified data format.
+     * Binary attachments placeholders are used only if format
+     * can't handle binary data natively.
+     *
+     * @param factory - data format factory, <code>null</code> means JSON
+     * @param modules - Jackson modules
+     */
+    public JacksonJsonSupport(JsonFactory factory, Module... modules) {
+        objectMapper = new ObjectMapper(factory);
         if (modules != null && modules.length > 0) {
             objectMapper.registerModules(modules);
         }
         init(objectMapper);
+        writer = objectMapper.writer();
     }
 
     protected void init(ObjectMapper objectMapper) {
         SimpleModule module = new SimpleModule();
-        module.setSerializerModifier(modifier);
+        if (!objectMapper.getFactory().canHandleBinaryNatively()) {
+            module.setSerializerModifier(modifier);
+        }
         module.addDeserializer(Event.class, eventDeserializer);
         module.addDeserializer(AckArgs.class, ackArgsDeserializer);
+        module.addDeserializer(byte[].class, new ByteArrayDeserializer());
+        module.addDeserializer(LazyArgument.class, new LazyArgumentDeserializer());
+        module.addSerializer(LazyArgument.class, new LazyArgumentSerializer());
+        module.addSerializer(Args.class, new ArgsSerializer());
         objectMapper.registerModule(module);
 
         objectMapper.setSerializationInclusion(Include.NON_NULL);
@@ -328,16 +700,123 @@ public class JacksonJsonSupport implements JsonSupport {
 
     @Override
     public void addEventMapping(String namespaceName, String eventName, Class<?> ... eventClass) {
-        eventDeserializer.eventMapping.put(new EventKey(namespaceName, eventName), Arrays.asList(eventClass));
+        boolean relay = eventClass.length == 1 && eventClass[0] == RelayEvent.class;
+        ObjectReader[] readers = new ObjectReader[relay ? 0 : eventClass.length];
+        for (int i = 0; i < readers.length; i++) {
+            readers[i] = objectMapper.readerFor(objectMapper.constructType(eventClass[i]));
+        }
+
+        EventPlan plan = new EventPlan(eventName, readers, relay);
+        synchronized (eventPlans) {
+            EventPlans plans = eventPlans.get(namespaceName);
+            if (plans == null) {
+                plans = new EventPlans();
+                plans.put(plan);
+                // table should be filled before plans become visible
+                rebuildEventPlans(namespaceName, plans);
+                eventPlans.put(namespaceName, plans);
+            } else {
+                plans.put(plan);
+                rebuildEventPlans(namespaceName, plans);
+            }
+        }
     }
 
     @Override
     public void removeEventMapping(String namespaceName, String eventName) {
-        eventDeserializer.eventMapping.remove(new EventKey(namespaceName, eventName));
+        synchronized (eventPlans) {
+            EventPlans plans = eventPlans.get(namespaceName);
+            if (plans != null) {
+                plans.remove(eventName);
+                rebuildEventPlans(namespaceName, plans);
+            }
+        }
+    }
+
+    private void rebuildEventPlans(String namespaceName, EventPlans plans) {
+        if (!Namespace.DEFAULT_NAME.equals(namespaceName)) {
+            EventPlans defaultPlans = eventPlans.get(Namespace.DEFAULT_NAME);
+            if (defaultPlans != null) {
+                plans.rebuild(defaultPlans.getPlans());
+            } else {
+                plans.rebuild(Collections.<EventPlan>emptyList());
+            }
+            return;
+        }
+
+        plans.rebuild(Collections.<EventPlan>emptyList());
+        // plans of default namespace are included to tables of all namespaces
+        for (Map.Entry<String, EventPlans> entry : eventPlans.entrySet()) {
+            if (!entry.getKey().equals(Namespace.DEFAULT_NAME)) {
+                entry.getValue().rebuild(plans.getPlans());
+            }
+        }
+    }
+
+    private EventPlan getEventPlan(String namespaceName, JsonParser jp) throws IOException {
+        EventPlans plans = null;
+        if (namespaceName != null) {
+            plans = eventPlans.get(namespaceName);
+        }
+        if (plans == null) {
+            plans = eventPlans.get(Namespace.DEFAULT_NAME);
+            if (plans == null) {
+                return null;
+            }
+        }
+        return plans.get(jp.getTextCharacters(), jp.getTextOffset(), jp.getTextLength());
+    }
+
+    /**
+     * Reads event array, parser should point to its start
+     */
+    Event readEvent(String namespaceName, JsonParser jp) throws IOException {
+        if (jp.nextToken() != JsonToken.VALUE_STRING) {
+            return new Event(null, Collections.emptyList());
+        }
+
+        EventPlan plan = getEventPlan(namespaceName, jp);
+        if (plan == null) {
+            String name = unknownEventNames.get(jp.getTextCharacters(), jp.getTextOffset(), jp.getTextLength());
+            return new Event(name, Collections.emptyList());
+        }
+        if (plan.relay) {
+            // arguments are left encoded
+            return new Event(plan.name, Collections.emptyList(), true);
+        }
+
+        ObjectReader[] readers = plan.readers;
+        List<Object> eventArgs = new ArrayList<Object>(readers.length);
+        Event event = new Event(plan.name, eventArgs);
+        int i = 0;
+        while (true) {
+            JsonToken token = jp.nextToken();
+            if (token == JsonToken.END_ARRAY) {
+                break;
+            }
+            if (i > readers.length - 1) {
+                log.debug("Event {} has more args than declared in handler: {}", plan.name, null);
+                break;
+            }
+            Object arg = readers[i].readValue(jp);
+            eventArgs.add(arg);
+            i++;
+        }
+        return event;
     }
 
     @Override
     public <T> T readValue(String namespaceName, ByteBufInputStream src, Class<T> valueType) throws IOException {
+        if (valueType == Event.class) {
+            JsonParser jp = objectMapper.getFactory().createParser((InputStream) src);
+            try {
+                jp.nextToken();
+                return valueType.cast(readEvent(namespaceName, jp));
+            } finally {
+                jp.close();
+            }
+        }
+
         namespaceClass.set(namespaceName);
         return objectMapper.readValue((InputStream)src, valueType);
     }
@@ -348,15 +827,52 @@ public class JacksonJsonSupport implements JsonSupport {
         return objectMapper.readValue((InputStream)src, AckArgs.class);
     }
 
+    @Override
+    public <T> T readValue(String namespaceName, ByteBufInputStream src, Class<T> valueType,
+                                List<ByteBuf> attachments) throws IOException {
+        currentAttachments.set(attachments);
+        try {
+            return readValue(namespaceName, src, valueType);
+        } finally {
+            currentAttachments.remove();
+        }
+    }
+
+    @Override
+    public AckArgs readAckArgs(ByteBufInputStream src, AckCallback<?> callback, List<ByteBuf> attachments) throws IOException {
+        currentAttachments.set(attachments);
+        try {
+            return readAckArgs(src, callback);
+        } finally {
+            currentAttachments.remove();
+        }
+    }
+
     @Override
     public void writeValue(ByteBufOutputStream out, Object value) throws IOException {
-        modifier.getSerializer().clear();
-        objectMapper.writeValue((OutputStream)out, value);
+        List<ByteBuf> attachments = new ArrayList<ByteBuf>(0);
+        writer.withAttribute(ATTACHMENTS_ATTRIBUTE, attachments)
+                        .writeValue((OutputStream)out, value);
     }
 
     @Override
+    @Deprecated
     public List<byte[]> getArrays() {
-        return modifier.getSerializer().getArrays();
+        return Collections.emptyList();
+    }
+
+    @Override
+    public void writeArgs(ByteBufOutputStream out, String name, List<?> args, List<ByteBuf> attachments) throws IOException {
+        writer.writeValue((OutputStream)out, new Args(name, args, attachments));
+    }
+
+    AckArgs readAckArgs(JsonParser jp, AckCallback<?> callback) throws IOException {
+        currentAckClass.set(callback);
+        return objectMapper.readValue(jp, AckArgs.class);
+    }
+
+    void writeArgs(JsonGenerator generator, String name, List<?> args) throws IOException {
+        writer.writeValue(generator, new Args(name, args, null));
     }
 
 }
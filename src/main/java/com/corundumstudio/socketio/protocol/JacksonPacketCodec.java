@@ -0,0 +1,294 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.protocol;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import com.corundumstudio.socketio.AckCallback;
+import com.corundumstudio.socketio.ack.AckManager;
+import com.corundumstudio.socketio.namespace.Namespace;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.BinaryNode;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+/**
+ * Packet codec based on Jackson data format, for example
+ * <code>new JacksonPacketCodec(new MessagePackFactory())</code>
+ * or <code>new JacksonPacketCodec(new CBORFactory())</code>.
+ * <p>
+ * Packet is encoded as object with <code>type</code>, <code>nsp</code>,
+ * <code>id</code> and <code>data</code> fields, as socket.io-msgpack-parser does.
+ * Binary data is written natively if format supports it.
+ * <p>
+ * {@link RelayEvent} is converted to and from JSON token by token without data binding,
+ * binary data is kept as RelayEvent attachments with placeholders in JSON.
+ * {@link com.corundumstudio.socketio.LazyArgument} keeps data in the format it has been received.
+ */
+public class JacksonPacketCodec implements PacketCodec {
+
+    private static final String TYPE = "type";
+    private static final String NSP = "nsp";
+    private static final String ID = "id";
+    private static final String DATA = "data";
+
+    private static final String DEFAULT_NSP = "/";
+
+    private static final String PLACEHOLDER = "_placeholder";
+    private static final String NUM = "num";
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final JacksonJsonSupport jsonSupport;
+
+    public JacksonPacketCodec(JsonFactory factory, Module... modules) {
+        this.jsonSupport = new JacksonJsonSupport(factory, modules);
+    }
+
+    @Override
+    public void addEventMapping(String namespaceName, String eventName, Class<?>... eventClass) {
+        jsonSupport.addEventMapping(namespaceName, eventName, eventClass);
+    }
+
+    @Override
+    public void removeEventMapping(String namespaceName, String eventName) {
+        jsonSupport.removeEventMapping(namespaceName, eventName);
+    }
+
+    @Override
+    public Packet decodePacket(ByteBuf frame, UUID sessionId, AckManager ackManager) throws IOException {
+        JsonParser jp = jsonSupport.objectMapper.getFactory().createParser((InputStream) new ByteBufInputStream(frame));
+        try {
+            if (jp.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Packet should be an object");
+            }
+
+            Integer type = null;
+            String nsp = Namespace.DEFAULT_NAME;
+            Long ackId = null;
+            TokenBuffer data = null;
+            while (jp.nextToken() == JsonToken.FIELD_NAME) {
+                String field = jp.getCurrentName();
+                jp.nextToken();
+                if (TYPE.equals(field)) {
+                    type = jp.getIntValue();
+                } else if (NSP.equals(field)) {
+                    nsp = jp.getText();
+                    if (DEFAULT_NSP.equals(nsp)) {
+                        nsp = Namespace.DEFAULT_NAME;
+                    }
+                } else if (ID.equals(field)) {
+                    if (jp.hasToken(JsonToken.VALUE_NUMBER_INT)) {
+                        ackId = jp.getLongValue();
+                    }
+                } else if (DATA.equals(field)) {
+                    // namespace could follow data
+                    data = new TokenBuffer(jp);
+                    data.copyCurrentStructure(jp);
+                } else {
+                    jp.skipChildren();
+                }
+            }
+            if (type == null) {
+                throw new IOException("Packet type is missing");
+            }
+
+            Packet packet = new Packet(PacketType.MESSAGE);
+            packet.setSubType(PacketType.valueOfInner(type));
+            packet.setNsp(nsp);
+            packet.setAckId(ackId);
+            if (data != null) {
+                readData(packet, data, sessionId, ackManager);
+            }
+            return packet;
+        } finally {
+            jp.close();
+        }
+    }
+
+    private void readData(Packet packet, TokenBuffer data, UUID sessionId, AckManager ackManager) throws IOException {
+        JsonParser jp = data.asParser(jsonSupport.objectMapper);
+        jp.nextToken();
+        switch (packet.getSubType()) {
+            case EVENT:
+            case BINARY_EVENT: {
+                Event event = jsonSupport.readEvent(packet.getNsp(), jp);
+                packet.setSubType(PacketType.EVENT);
+                packet.setName(event.getName());
+                if (event.isRelay()) {
+                    RelayEvent relayEvent = createRelayEvent(event.getName(), data);
+                    packet.setData(Collections.<Object>singletonList(relayEvent));
+                } else {
+                    packet.setData(event.getArgs());
+                }
+                break;
+            }
+
+            case ACK:
+            case BINARY_ACK: {
+                packet.setSubType(PacketType.ACK);
+                AckCallback<?> callback = ackManager.getCallback(sessionId, packet.getAckId());
+                if (callback == null) {
+                    packet.setData(Collections.emptyList());
+                    break;
+                }
+                packet.setAckCallback(callback);
+                AckArgs args = jsonSupport.readAckArgs(jp, callback);
+                packet.setData(args.getArgs());
+                break;
+            }
+
+            default:
+                break;
+        }
+    }
+
+    private RelayEvent createRelayEvent(String name, TokenBuffer data) throws IOException {
+        List<byte[]> attachments = Collections.emptyList();
+        ByteArrayBuilder out = new ByteArrayBuilder();
+        JsonGenerator generator = JSON_FACTORY.createGenerator(out);
+        JsonParser jp = data.asParser();
+        try {
+            while (jp.nextToken() != null) {
+                if (jp.hasToken(JsonToken.VALUE_EMBEDDED_OBJECT)
+                        && jp.getEmbeddedObject() instanceof byte[]) {
+                    if (attachments.isEmpty()) {
+                        attachments = new ArrayList<byte[]>();
+                    }
+                    generator.writeStartObject();
+                    generator.writeBooleanField(PLACEHOLDER, true);
+                    generator.writeNumberField(NUM, attachments.size());
+                    generator.writeEndObject();
+                    attachments.add((byte[]) jp.getEmbeddedObject());
+                } else {
+                    generator.copyCurrentEvent(jp);
+                }
+            }
+        } finally {
+            jp.close();
+        }
+        generator.close();
+        return new RelayEvent(name, out.toByteArray(), attachments);
+    }
+
+    @Override
+    public void encodePacket(Packet packet, ByteBuf out) throws IOException {
+        JsonGenerator generator = jsonSupport.objectMapper.getFactory().createGenerator((OutputStream) new ByteBufOutputStream(out));
+        try {
+            generator.writeStartObject();
+
+            PacketType subType = packet.getSubType();
+            if (subType == PacketType.BINARY_EVENT) {
+                subType = PacketType.EVENT;
+            }
+            if (subType == PacketType.BINARY_ACK) {
+                subType = PacketType.ACK;
+            }
+            generator.writeNumberField(TYPE, subType.getValue());
+
+            String nsp = packet.getNsp();
+            if (nsp.isEmpty()) {
+                nsp = DEFAULT_NSP;
+            }
+            generator.writeStringField(NSP, nsp);
+
+            if (packet.getAckId() != null) {
+                generator.writeNumberField(ID, packet.getAckId());
+            }
+
+            if (subType == PacketType.EVENT || subType == PacketType.ACK) {
+                generator.writeFieldName(DATA);
+                writeArgs(generator, packet, subType);
+            } else if (subType == PacketType.ERROR && packet.getData() != null) {
+                generator.writeFieldName(DATA);
+                jsonSupport.objectMapper.writeValue(generator, packet.getData());
+            }
+
+            generator.writeEndObject();
+        } finally {
+            generator.close();
+        }
+    }
+
+    private void writeArgs(JsonGenerator generator, Packet packet, PacketType subType) throws IOException {
+        if (packet.getData() instanceof RelayEvent) {
+            RelayEvent event = packet.getData();
+            JsonParser jp = JSON_FACTORY.createParser(event.getJson());
+            try {
+                jp.nextToken();
+                if (event.getAttachments().isEmpty()) {
+                    generator.copyCurrentStructure(jp);
+                } else {
+                    JsonNode tree = jsonSupport.objectMapper.readTree(jp);
+                    tree = replacePlaceholders(tree, event.getAttachments());
+                    jsonSupport.objectMapper.writeTree(generator, tree);
+                }
+            } finally {
+                jp.close();
+            }
+            return;
+        }
+
+        String name = null;
+        if (subType == PacketType.EVENT) {
+            name = packet.getName();
+        }
+        List<Object> args = packet.getData();
+        jsonSupport.writeArgs(generator, name, args);
+    }
+
+    private JsonNode replacePlaceholders(JsonNode node, List<byte[]> attachments) {
+        if (node.isArray()) {
+            ArrayNode array = (ArrayNode) node;
+            for (int i = 0; i < array.size(); i++) {
+                array.set(i, replacePlaceholders(array.get(i), attachments));
+            }
+        } else if (node.isObject()) {
+            JsonNode num = node.get(NUM);
+            if (node.path(PLACEHOLDER).asBoolean() && num != null && num.canConvertToInt()) {
+                int index = num.intValue();
+                if (index >= 0 && index < attachments.size()) {
+                    return BinaryNode.valueOf(attachments.get(index));
+                }
+            }
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                field.setValue(replacePlaceholders(field.getValue(), attachments));
+            }
+        }
+        return node;
+    }
+
+}
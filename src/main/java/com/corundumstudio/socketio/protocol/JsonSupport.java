@@ -15,6 +15,7 @@
  */
 package com.corundumstudio.socketio.protocol;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufInputStream;
 import io.netty.buffer.ByteBufOutputStream;
 
@@ -27,6 +28,11 @@ import com.corundumstudio.socketio.AckCallback;
  * JSON infrastructure interface.
  * Allows to implement custom realizations
  * to JSON support operations.
+ * <p>
+ * Realizations written against earlier versions of this interface
+ * don't implement {@link #writeArgs(ByteBufOutputStream, String, List, List)}
+ * and attachments aware read methods, and should extend
+ * {@link JsonSupportAdapter} instead.
  *
  */
 public interface JsonSupport {
@@ -35,12 +41,82 @@ public interface JsonSupport {
 
     <T> T readValue(String namespaceName, ByteBufInputStream src, Class<T> valueType) throws IOException;
 
+    /**
+     * Reads value resolving binary attachment placeholders
+     * of <code>byte[]</code> type directly to attachments content
+     *
+     * @param namespaceName - namespace name
+     * @param src - source
+     * @param valueType - value type
+     * <p>
+     * This method is new to the interface, so existing realizations
+     * have to implement it or extend {@link JsonSupportAdapter}.
+     *
+     * @param attachments - binary attachments
+     * @return value
+     * @throws IOException - if value can't be read
+     */
+    <T> T readValue(String namespaceName, ByteBufInputStream src, Class<T> valueType, List<ByteBuf> attachments) throws IOException;
+
+    /**
+     * Reads ack args resolving binary attachment placeholders
+     * of <code>byte[]</code> type directly to attachments content
+     *
+     * @param src - source
+     * @param callback - ack callback
+     * <p>
+     * This method is new to the interface, so existing realizations
+     * have to implement it or extend {@link JsonSupportAdapter}.
+     *
+     * @param attachments - binary attachments
+     * @return ack args
+     * @throws IOException - if args can't be read
+     */
+    AckArgs readAckArgs(ByteBufInputStream src, AckCallback<?> callback, List<ByteBuf> attachments) throws IOException;
+
+    /**
+     * Writes value to output stream.
+     * Values of <code>byte[]</code> type are written as binary attachment
+     * placeholders, their content is not retained, use
+     * {@link #writeArgs(ByteBufOutputStream, String, List, List)}
+     * to collect it.
+     *
+     * @param out - output stream
+     * @param value - value
+     * @throws IOException - if value can't be written
+     */
     void writeValue(ByteBufOutputStream out, Object value) throws IOException;
 
+    /**
+     * Writes JSON array of event name followed by its arguments
+     * directly to output stream without intermediate collections.
+     * Values of <code>byte[]</code> type are written as binary attachment
+     * placeholders and added to <code>attachments</code> list.
+     * <p>
+     * This method is new to the interface, so existing realizations
+     * have to implement it or extend {@link JsonSupportAdapter}.
+     *
+     * @param out - output stream
+     * @param name - event name, <code>null</code> for ack packet
+     * @param args - arguments
+     * @param attachments - list to collect binary attachments to
+     * @throws IOException - if value can't be written
+     */
+    void writeArgs(ByteBufOutputStream out, String name, List<?> args, List<ByteBuf> attachments) throws IOException;
+
     void addEventMapping(String namespaceName, String eventName, Class<?> ... eventClass);
 
     void removeEventMapping(String namespaceName, String eventName);
 
+    /**
+     * Binary attachments are no longer kept between calls,
+     * so {@link JacksonJsonSupport} always returns empty list.
+     *
+     * @return empty list
+     * @deprecated use {@link #writeArgs(ByteBufOutputStream, String, List, List)}
+     *             which collects attachments to the passed list
+     */
+    @Deprecated
     List<byte[]> getArrays();
 
 }
@@ -0,0 +1,89 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.protocol;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.Unpooled;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.corundumstudio.socketio.AckCallback;
+
+/**
+ * Base class for custom {@link JsonSupport} realizations
+ * written against earlier versions of the interface.
+ * Implements newer methods through the older ones,
+ * so only those have to be provided.
+ *
+ */
+public abstract class JsonSupportAdapter implements JsonSupport {
+
+    /**
+     * Reads value through {@link #readValue(String, ByteBufInputStream, Class)}.
+     * Attachments are passed only in raw binary attachments mode,
+     * which is not supported by this realization.
+     */
+    @Override
+    public <T> T readValue(String namespaceName, ByteBufInputStream src, Class<T> valueType,
+                            List<ByteBuf> attachments) throws IOException {
+        checkAttachments(attachments);
+        return readValue(namespaceName, src, valueType);
+    }
+
+    /**
+     * Reads ack args through {@link #readAckArgs(ByteBufInputStream, AckCallback)}.
+     * Attachments are passed only in raw binary attachments mode,
+     * which is not supported by this realization.
+     */
+    @Override
+    public AckArgs readAckArgs(ByteBufInputStream src, AckCallback<?> callback,
+                            List<ByteBuf> attachments) throws IOException {
+        checkAttachments(attachments);
+        return readAckArgs(src, callback);
+    }
+
+    private void checkAttachments(List<ByteBuf> attachments) {
+        if (attachments != null) {
+            throw new UnsupportedOperationException("Raw binary attachments are not supported by "
+                                                        + getClass().getName());
+        }
+    }
+
+    /**
+     * Writes event name and arguments as single list through
+     * {@link #writeValue(ByteBufOutputStream, Object)} and collects
+     * binary attachments from {@link #getArrays()}.
+     */
+    @Override
+    @SuppressWarnings("deprecation")
+    public void writeArgs(ByteBufOutputStream out, String name, List<?> args, List<ByteBuf> attachments) throws IOException {
+        List<Object> values = new ArrayList<Object>(args.size() + 1);
+        if (name != null) {
+            values.add(name);
+        }
+        values.addAll(args);
+        writeValue(out, values);
+
+        for (byte[] array : getArrays()) {
+            attachments.add(Unpooled.wrappedBuffer(array));
+        }
+    }
+
+}
@@ -22,6 +22,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
+import com.corundumstudio.socketio.AckCallback;
 import com.corundumstudio.socketio.namespace.Namespace;
 
 public class Packet implements Serializable {
@@ -39,6 +40,11 @@ public class Packet implements Serializable {
     private int attachmentsCount;
     private List<ByteBuf> attachments = Collections.emptyList();
 
+    private transient AckCallback<?> ackCallback;
+
+    private transient boolean shared;
+    private transient volatile ByteBuf encoded;
+
     protected Packet() {
     }
 
@@ -86,19 +92,47 @@ public class Packet implements Serializable {
         if (this.nsp.equalsIgnoreCase(namespace)) {
             return this;
         } else {
-            Packet newPacket = new Packet(this.type);
-            newPacket.setAckId(this.ackId);
-            newPacket.setData(this.data);
-            newPacket.setDataSource(this.dataSource);
-            newPacket.setName(this.name);
-            newPacket.setSubType(this.subType);
-            newPacket.setNsp(namespace);
-            newPacket.attachments = this.attachments;
-            newPacket.attachmentsCount = this.attachmentsCount;
-            return newPacket;
+            return copy(namespace);
         }
     }
 
+    /**
+     * Creates a copy of #{@link Packet} with new namespace set
+     * which is encoded only once and then shared
+     * between all clients it has been sent to.
+     * Used for broadcast operations.
+     */
+    public Packet shareWithNsp(String namespace) {
+        Packet newPacket = copy(namespace);
+        newPacket.shared = true;
+        return newPacket;
+    }
+
+    private Packet copy(String namespace) {
+        Packet newPacket = new Packet(this.type);
+        newPacket.setAckId(this.ackId);
+        newPacket.setData(this.data);
+        newPacket.setDataSource(this.dataSource);
+        newPacket.setName(this.name);
+        newPacket.setSubType(this.subType);
+        newPacket.setNsp(namespace);
+        newPacket.attachments = this.attachments;
+        newPacket.attachmentsCount = this.attachmentsCount;
+        return newPacket;
+    }
+
+    public boolean isShared() {
+        return shared;
+    }
+
+    ByteBuf getEncoded() {
+        return encoded;
+    }
+
+    void setEncoded(ByteBuf encoded) {
+        this.encoded = encoded;
+    }
+
     public void setNsp(String endpoint) {
         this.nsp = endpoint;
     }
@@ -127,6 +161,19 @@ public class Packet implements Serializable {
         return getAckId() != null;
     }
 
+    /**
+     * Callback of inbound ack packet resolved during decoding
+     *
+     * @return callback or <code>null</code> if it's not found
+     */
+    public AckCallback<?> getAckCallback() {
+        return ackCallback;
+    }
+
+    public void setAckCallback(AckCallback<?> ackCallback) {
+        this.ackCallback = ackCallback;
+    }
+
     public void initAttachments(int attachmentsCount) {
         this.attachmentsCount = attachmentsCount;
         this.attachments = new ArrayList<ByteBuf>(attachmentsCount);
@@ -153,6 +200,24 @@ public class Packet implements Serializable {
         this.dataSource = dataSource;
     }
 
+    /**
+     * Releases data source and attachments buffers
+     * retained while inbound binary packet is being received.
+     * Packet has no attachments afterwards.
+     */
+    public synchronized void releaseAttachments() {
+        if (dataSource == null) {
+            return;
+        }
+        dataSource.release();
+        dataSource = null;
+        for (ByteBuf attachment : attachments) {
+            attachment.release();
+        }
+        attachments = Collections.emptyList();
+        attachmentsCount = 0;
+    }
+
     @Override
     public String toString() {
         return "Packet [type=" + type + ", ackId=" + ackId + "]";
@@ -0,0 +1,63 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.protocol;
+
+import io.netty.buffer.ByteBuf;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.UUID;
+
+import com.corundumstudio.socketio.Configuration;
+import com.corundumstudio.socketio.ack.AckManager;
+
+/**
+ * Codec of socket.io packets for binary wire formats.
+ * <p>
+ * Codec is selected by client with <code>codec</code> handshake query parameter
+ * from the ones registered by {@link Configuration#setPacketCodecs(Map)}.
+ * Its packets are transferred as binary websocket frames or binary polling payload frames,
+ * engine.io packets are still encoded as text.
+ *
+ * @see JacksonPacketCodec
+ */
+public interface PacketCodec {
+
+    void addEventMapping(String namespaceName, String eventName, Class<?> ... eventClass);
+
+    void removeEventMapping(String namespaceName, String eventName);
+
+    /**
+     * Decodes socket.io packet
+     *
+     * @param frame - packet data without engine.io packet type
+     * @param sessionId - client session id
+     * @param ackManager - used to resolve ack callback for ack packets
+     * @return packet
+     * @throws IOException if packet can't be decoded
+     */
+    Packet decodePacket(ByteBuf frame, UUID sessionId, AckManager ackManager) throws IOException;
+
+    /**
+     * Encodes socket.io packet
+     *
+     * @param packet - packet of {@link PacketType#MESSAGE} type
+     * @param out - target buffer
+     * @throws IOException if packet can't be encoded
+     */
+    void encodePacket(Packet packet, ByteBuf out) throws IOException;
+
+}
@@ -16,69 +16,177 @@
 package com.corundumstudio.socketio.protocol;
 
 import com.corundumstudio.socketio.AckCallback;
+import com.corundumstudio.socketio.Configuration;
 import com.corundumstudio.socketio.ack.AckManager;
 import com.corundumstudio.socketio.handler.ClientHead;
+import com.corundumstudio.socketio.misc.InternedStrings;
+import com.corundumstudio.socketio.misc.StringCache;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.ByteBufInputStream;
 import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.CompositeByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.handler.codec.base64.Base64;
+import io.netty.handler.codec.base64.Base64Dialect;
+import io.netty.util.ByteProcessor;
 import io.netty.util.CharsetUtil;
 
 import java.io.IOException;
-import java.net.URLDecoder;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
 
 public class PacketDecoder {
 
-    private final UTF8CharsScanner utf8scanner = new UTF8CharsScanner();
+    /**
+     * Max amount of digits in payload frame length
+     */
+    private static final int MAX_LENGTH_DIGITS = 10;
+
+    /**
+     * Stops on URL-encoded bytes
+     */
+    private static final ByteProcessor URL_PLAIN = new ByteProcessor() {
+        @Override
+        public boolean process(byte value) {
+            return value != '%' && value != '+';
+        }
+    };
+
+    /**
+     * Stops on URL-encoded bytes and possible end of escaped new line
+     */
+    private static final ByteProcessor JSONP_PLAIN = new ByteProcessor() {
+        @Override
+        public boolean process(byte value) {
+            return value != '%' && value != '+' && value != 'n';
+        }
+    };
 
-    private final ByteBuf QUOTES = Unpooled.copiedBuffer("\"", CharsetUtil.UTF_8);
+    private static final ByteBuf QUOTES = Unpooled.unreleasableBuffer(Unpooled.copiedBuffer("\"", CharsetUtil.UTF_8));
+
+    private static final byte[] PLACEHOLDER_PREFIX = "{\"_placeholder\":true,\"num\":".getBytes(CharsetUtil.UTF_8);
+    private static final byte[] NUM_PREFIX = "{\"num\":".getBytes(CharsetUtil.UTF_8);
+    private static final byte[] PLACEHOLDER_SUFFIX = ",\"_placeholder\":true}".getBytes(CharsetUtil.UTF_8);
 
     private final JsonSupport jsonSupport;
     private final AckManager ackManager;
+    private final InternedStrings namespaceNames;
+    private final StringCache unknownNamespaceNames = new StringCache(64, 128);
+    private final boolean rawBinaryAttachments;
 
     public PacketDecoder(JsonSupport jsonSupport, AckManager ackManager) {
+        this(new Configuration(), jsonSupport, ackManager, new InternedStrings());
+    }
+
+    public PacketDecoder(Configuration configuration, JsonSupport jsonSupport, AckManager ackManager,
+                            InternedStrings namespaceNames) {
         this.jsonSupport = jsonSupport;
         this.ackManager = ackManager;
+        this.namespaceNames = namespaceNames;
+        this.rawBinaryAttachments = configuration.isRawBinaryAttachments();
     }
 
-    private boolean isStringPacket(ByteBuf content) {
-        return content.getByte(content.readerIndex()) == 0x0;
-    }
+    /**
+     * URL-decodes b64/JSONP polling payload in a single pass.
+     * For JSONP double escaped new lines are unescaped and
+     * <code>d=</code> prefix is skipped.
+     * <p>
+     * Double escaping is required for escaped new lines because unescaping of new lines can be done safely on server-side
+     * (c) socket.io.js
+     *
+     * @see https://github.com/Automattic/socket.io-client/blob/1.3.3/socket.io.js#L2682
+     *
+     * @param jsonIndex - JSONP index or <code>null</code> for b64 payload
+     * @param content - payload
+     * @param allocator - allocator of decoded payload
+     * @return decoded payload, should be released by caller
+     */
+    public ByteBuf preprocessJson(Integer jsonIndex, ByteBuf content, ByteBufAllocator allocator) {
+        boolean jsonpMode = jsonIndex != null;
+        ByteProcessor processor = URL_PLAIN;
+        if (jsonpMode) {
+            processor = JSONP_PLAIN;
+        }
 
-    // TODO optimize
-    public ByteBuf preprocessJson(Integer jsonIndex, ByteBuf content) throws IOException {
-        String packet = URLDecoder.decode(content.toString(CharsetUtil.UTF_8), CharsetUtil.UTF_8.name());
+        ByteBuf out = allocator.buffer(content.readableBytes());
+        try {
+            int index = content.readerIndex();
+            int end = content.writerIndex();
+            while (index < end) {
+                // copy run of bytes which don't need decoding at once
+                int i = content.forEachByte(index, end - index, processor);
+                if (i == -1) {
+                    i = end;
+                }
+                if (i > index) {
+                    out.writeBytes(content, index, i - index);
+                }
+                if (i == end) {
+                    break;
+                }
 
-        if (jsonIndex != null) {
-            /**
-            * double escaping is required for escaped new lines because unescaping of new lines can be done safely on server-side
-            * (c) socket.io.js
-            *
-            * @see https://github.com/Automattic/socket.io-client/blob/1.3.3/socket.io.js#L2682
-            */
-            packet = packet.replace("\\\\n", "\\n");
+                byte value = content.getByte(i);
+                index = i + 1;
+                if (value == '%') {
+                    if (i + 2 >= end) {
+                        throw new IllegalArgumentException("Incomplete trailing escape pattern");
+                    }
+                    int high = decodeHexNibble(content.getByte(i + 1));
+                    int low = decodeHexNibble(content.getByte(i + 2));
+                    if (high == -1 || low == -1) {
+                        throw new IllegalArgumentException("Illegal hex characters in escape pattern");
+                    }
+                    value = (byte) ((high << 4) + low);
+                    index = i + 3;
+                } else if (value == '+') {
+                    value = ' ';
+                }
 
-            // skip "d="
-            packet = packet.substring(2);
+                int last = out.writerIndex() - 1;
+                if (jsonpMode && value == 'n' && last - 1 >= out.readerIndex()
+                        && out.getByte(last) == '\\' && out.getByte(last - 1) == '\\') {
+                    // replace \\n with \n
+                    out.setByte(last, 'n');
+                } else {
+                    out.writeByte(value);
+                }
+            }
+
+            if (jsonpMode) {
+                // skip "d="
+                out.skipBytes(2);
+            }
+            return out;
+        } catch (RuntimeException e) {
+            out.release();
+            throw e;
         }
+    }
 
-        return Unpooled.wrappedBuffer(packet.getBytes(CharsetUtil.UTF_8));
+    private int decodeHexNibble(byte value) {
+        if (value >= '0' && value <= '9') {
+            return value - '0';
+        }
+        if (value >= 'a' && value <= 'f') {
+            return value - 'a' + 10;
+        }
+        if (value >= 'A' && value <= 'F') {
+            return value - 'A' + 10;
+        }
+        return -1;
     }
 
     // fastest way to parse chars to int
     private long readLong(ByteBuf chars, int length) {
         long result = 0;
-        for (int i = chars.readerIndex(); i < chars.readerIndex() + length; i++) {
-            int digit = ((int)chars.getByte(i) & 0xF);
-            for (int j = 0; j < chars.readerIndex() + length-1-i; j++) {
-                digit *= 10;
-            }
-            result += digit;
+        int end = chars.readerIndex() + length;
+        for (int i = chars.readerIndex(); i < end; i++) {
+            result = result * 10 + (chars.getByte(i) & 0xF);
         }
-        chars.readerIndex(chars.readerIndex() + length);
+        chars.readerIndex(end);
         return result;
     }
 
@@ -92,45 +200,98 @@ public class PacketDecoder {
         return PacketType.valueOfInner(typeId);
     }
 
-    private boolean hasLengthHeader(ByteBuf buffer) {
-        for (int i = 0; i < Math.min(buffer.readableBytes(), 10); i++) {
-            byte b = buffer.getByte(buffer.readerIndex() + i);
-            if (b == (byte)':' && i > 0) {
-                return true;
+    public Packet decodePackets(ByteBuf buffer, ClientHead client) throws IOException {
+        ByteBuf frame = readFrame(buffer);
+        return decode(client, frame);
+    }
+
+    /**
+     * Reads next frame of polling payload in a single pass
+     * and advances buffer to the frame end. If buffer isn't framed,
+     * its whole readable content is treated as a single frame.
+     * <p>
+     * Supported framings are <code>&lt;0|1&gt;&lt;digits&gt;0xff&lt;data&gt;</code>
+     * where length is in bytes and <code>&lt;digits&gt;:&lt;data&gt;</code>
+     * where length is in UTF-16 chars.
+     *
+     * @param buffer - payload
+     * @return frame data slice
+     */
+    private ByteBuf readFrame(ByteBuf buffer) {
+        int index = buffer.readerIndex();
+        int end = buffer.writerIndex();
+        byte first = buffer.getByte(index);
+
+        if (first == 0x0 || first == 0x1) {
+            long length = 0;
+            for (int i = index + 1; i < end && i <= index + MAX_LENGTH_DIGITS + 1; i++) {
+                byte b = buffer.getByte(i);
+                if ((b == (byte) 0xff || b == '?') && i > index + 1) {
+                    return readFrame(buffer, i + 1, length);
+                }
+                if (!(b >= 0 && b <= 9) && !(b >= '0' && b <= '9')) {
+                    break;
+                }
+                length = length * 10 + (b & 0xF);
             }
-            if (b > 57 || b < 48) {
-                return false;
+            throw new IllegalStateException("Invalid payload frame header");
+        }
+
+        if (first >= '0' && first <= '9') {
+            long length = 0;
+            for (int i = index; i < end && i <= index + MAX_LENGTH_DIGITS; i++) {
+                byte b = buffer.getByte(i);
+                if (b == ':' && i > index) {
+                    int dataIndex = i + 1;
+                    return readFrame(buffer, dataIndex, getUtf8Length(buffer, dataIndex, length));
+                }
+                if (b < '0' || b > '9') {
+                    break;
+                }
+                length = length * 10 + (b & 0xF);
             }
         }
-        return false;
+
+        return readFrame(buffer, index, end - index);
     }
 
-    public Packet decodePackets(ByteBuf buffer, ClientHead client) throws IOException {
-        if (isStringPacket(buffer)) {
-            // TODO refactor
-            int maxLength = Math.min(buffer.readableBytes(), 10);
-            int headEndIndex = buffer.bytesBefore(maxLength, (byte)-1);
-            if (headEndIndex == -1) {
-                headEndIndex = buffer.bytesBefore(maxLength, (byte)0x3f);
+    private ByteBuf readFrame(ByteBuf buffer, int dataIndex, long length) {
+        if (length > buffer.writerIndex() - dataIndex) {
+            throw new IllegalStateException("Payload frame length: " + length + " exceeds payload size");
+        }
+        ByteBuf frame = buffer.slice(dataIndex, (int) length);
+        // skip this frame
+        buffer.readerIndex(dataIndex + (int) length);
+        return frame;
+    }
+
+    /**
+     * Converts length in UTF-16 chars to length in bytes of UTF-8 encoded data
+     */
+    private int getUtf8Length(ByteBuf buffer, int index, long chars) {
+        int end = buffer.writerIndex();
+        int i = index;
+        while (chars > 0 && i < end) {
+            int c = buffer.getByte(i) & 0xFF;
+            if (c < 0x80) {
+                i++;
+                chars--;
+            } else if ((c & 0xE0) == 0xC0) {
+                i += 2;
+                chars--;
+            } else if ((c & 0xF0) == 0xE0) {
+                i += 3;
+                chars--;
+            } else {
+                // encoded as surrogate pair
+                i += 4;
+                chars -= 2;
             }
-            int len = (int) readLong(buffer, headEndIndex);
-
-            ByteBuf frame = buffer.slice(buffer.readerIndex() + 1, len);
-            // skip this frame
-            buffer.readerIndex(buffer.readerIndex() + 1 + len);
-            return decode(client, frame);
-        } else if (hasLengthHeader(buffer)) {
-            // TODO refactor
-            int lengthEndIndex = buffer.bytesBefore((byte)':');
-            int lenHeader = (int) readLong(buffer, lengthEndIndex);
-            int len = utf8scanner.getActualLength(buffer, lenHeader);
-
-            ByteBuf frame = buffer.slice(buffer.readerIndex() + 1, len);
-            // skip this frame
-            buffer.readerIndex(buffer.readerIndex() + 1 + len);
-            return decode(client, frame);
-        }
-        return decode(client, buffer);
+        }
+        if (chars != 0 || i > end) {
+            throw new IllegalStateException("Payload frame length exceeds payload size");
+        }
+        return i - index;
     }
 
     private String readString(ByteBuf frame) {
@@ -144,8 +305,16 @@ public class PacketDecoder {
     }
 
     private Packet decode(ClientHead head, ByteBuf frame) throws IOException {
+        PacketCodec codec = head.getPacketCodec();
+        if (codec != null && frame.getByte(0) == 4) {
+            frame.skipBytes(1);
+            Packet packet = codec.decodePacket(frame, head.getSessionId(), ackManager);
+            frame.readerIndex(frame.writerIndex());
+            return packet;
+        }
+
         if ((frame.getByte(0) == 'b' && frame.getByte(1) == '4')
-                || frame.getByte(0) == 4 || frame.getByte(0) == 1) {
+                || frame.getByte(0) == 4) {
             return parseBinary(head, frame);
         }
         PacketType type = readType(frame);
@@ -188,16 +357,14 @@ public class PacketDecoder {
             return;
         }
 
-        // TODO optimize
-        boolean hasNsp = frame.bytesBefore(endIndex, (byte)',') != -1;
-        if (hasNsp) {
-            String nspAckId = readString(frame, endIndex);
-            String[] parts = nspAckId.split(",");
-            String nsp = parts[0];
-            packet.setNsp(nsp);
-            if (parts.length > 1) {
-                String ackId = parts[1];
-                packet.setAckId(Long.valueOf(ackId));
+        int nspEndIndex = frame.bytesBefore(endIndex, (byte)',');
+        if (nspEndIndex != -1) {
+            packet.setNsp(readNamespace(frame, nspEndIndex));
+            // skip ','
+            frame.skipBytes(1);
+            int ackIdLength = endIndex - nspEndIndex - 1;
+            if (ackIdLength > 0) {
+                packet.setAckId(readLong(frame, ackIdLength));
             }
         } else {
             long ackId = readLong(frame, endIndex);
@@ -206,16 +373,8 @@ public class PacketDecoder {
     }
 
     private Packet parseBinary(ClientHead head, ByteBuf frame) throws IOException {
-        if (frame.getByte(0) == 1) {
-            frame.readByte();
-            int headEndIndex = frame.bytesBefore((byte)-1);
-            int len = (int) readLong(frame, headEndIndex);
-            ByteBuf oldFrame = frame;
-            frame = frame.slice(oldFrame.readerIndex() + 1, len);
-            oldFrame.readerIndex(oldFrame.readerIndex() + 1 + len);
-        }
-
-        if (frame.getByte(0) == 'b' && frame.getByte(1) == '4') {
+        boolean base64 = frame.getByte(0) == 'b' && frame.getByte(1) == '4';
+        if (base64) {
             frame.readShort();
         } else if (frame.getByte(0) == 4) {
             frame.readByte();
@@ -223,47 +382,137 @@ public class PacketDecoder {
 
         Packet binaryPacket = head.getLastBinaryPacket();
         if (binaryPacket != null) {
-            if (frame.getByte(0) == 'b' && frame.getByte(1) == '4') {
-                binaryPacket.addAttachment(Unpooled.copiedBuffer(frame));
-            } else {
-                ByteBuf attachBuf = Base64.encode(frame);
-                binaryPacket.addAttachment(Unpooled.copiedBuffer(attachBuf));
-                attachBuf.release();
-            }
-            frame.readerIndex(frame.readerIndex() + frame.readableBytes());
+            binaryPacket.addAttachment(readAttachment(frame, base64));
+            frame.readerIndex(frame.writerIndex());
 
             if (binaryPacket.isAttachmentsLoaded()) {
-                LinkedList<ByteBuf> slices = new LinkedList<ByteBuf>();
-                ByteBuf source = binaryPacket.getDataSource();
-                for (int i = 0; i < binaryPacket.getAttachments().size(); i++) {
-                    ByteBuf attachment = binaryPacket.getAttachments().get(i);
-                    ByteBuf scanValue = Unpooled.copiedBuffer("{\"_placeholder\":true,\"num\":" + i + "}", CharsetUtil.UTF_8);
-                    int pos = PacketEncoder.find(source, scanValue);
-                    if (pos == -1) {
-                        scanValue = Unpooled.copiedBuffer("{\"num\":" + i + ",\"_placeholder\":true}", CharsetUtil.UTF_8);
-                        pos = PacketEncoder.find(source, scanValue);
-                        if (pos == -1) {
-                            throw new IllegalStateException("Can't find attachment by index: " + i + " in packet source");
+                try {
+                    if (rawBinaryAttachments) {
+                        parseBody(head, binaryPacket.getDataSource(), binaryPacket);
+                    } else {
+                        ByteBuf source = substituteAttachments(binaryPacket);
+                        try {
+                            parseBody(head, source, binaryPacket);
+                        } finally {
+                            source.release();
                         }
                     }
+                } finally {
+                    head.setLastBinaryPacket(null);
+                }
+                return binaryPacket;
+            }
+        }
+        return new Packet(PacketType.MESSAGE);
+    }
 
-                    ByteBuf prefixBuf = source.slice(source.readerIndex(), pos - source.readerIndex());
-                    slices.add(prefixBuf);
-                    slices.add(QUOTES);
-                    slices.add(attachment);
-                    slices.add(QUOTES);
+    /**
+     * Reads attachment as retained slice of frame if it's already
+     * in required form, otherwise converts it from or to base64.
+     */
+    private ByteBuf readAttachment(ByteBuf frame, boolean base64) {
+        if (base64 && rawBinaryAttachments) {
+            return Base64.decode(frame, frame.readerIndex(), frame.readableBytes(), Base64Dialect.STANDARD, frame.alloc());
+        }
+        if (!base64 && !rawBinaryAttachments) {
+            return Base64.encode(frame, frame.readerIndex(), frame.readableBytes(), false, Base64Dialect.STANDARD, frame.alloc());
+        }
+        return frame.retainedSlice();
+    }
 
-                    source.readerIndex(pos + scanValue.readableBytes());
+    /**
+     * Replaces attachment placeholders in packet data source
+     * with base64 encoded attachments in a single pass.
+     *
+     * @return composite buffer of data source and attachments slices
+     */
+    private ByteBuf substituteAttachments(Packet packet) {
+        ByteBuf source = packet.getDataSource();
+        List<ByteBuf> attachments = packet.getAttachments();
+        CompositeByteBuf result = source.alloc().compositeBuffer(attachments.size() * 4 + 1);
+        try {
+            int end = source.writerIndex();
+            int prefixIndex = source.readerIndex();
+            int index = prefixIndex;
+            int found = 0;
+            while (true) {
+                index = source.indexOf(index, end, (byte) '{');
+                if (index == -1) {
+                    break;
                 }
-                slices.add(source.slice());
 
-                ByteBuf compositeBuf = Unpooled.wrappedBuffer(slices.toArray(new ByteBuf[slices.size()]));
-                parseBody(head, compositeBuf, binaryPacket);
-                head.setLastBinaryPacket(null);
-                return binaryPacket;
+                int num = -1;
+                int placeholderEnd = -1;
+                if (startsWith(source, index, PLACEHOLDER_PREFIX)) {
+                    int numIndex = index + PLACEHOLDER_PREFIX.length;
+                    int numEnd = source.indexOf(numIndex, end, (byte) '}');
+                    if (numEnd != -1) {
+                        num = readNumber(source, numIndex, numEnd);
+                        placeholderEnd = numEnd + 1;
+                    }
+                } else if (startsWith(source, index, NUM_PREFIX)) {
+                    int numIndex = index + NUM_PREFIX.length;
+                    int numEnd = source.indexOf(numIndex, end, (byte) ',');
+                    if (numEnd != -1 && startsWith(source, numEnd, PLACEHOLDER_SUFFIX)) {
+                        num = readNumber(source, numIndex, numEnd);
+                        placeholderEnd = numEnd + PLACEHOLDER_SUFFIX.length;
+                    }
+                }
+
+                if (num == -1) {
+                    index++;
+                    continue;
+                }
+                if (num >= attachments.size() || found == attachments.size()) {
+                    throw new IllegalStateException("Can't find attachment by index: " + num + " in packet source");
+                }
+
+                result.addComponent(true, source.retainedSlice(prefixIndex, index - prefixIndex));
+                result.addComponent(true, QUOTES.duplicate());
+                result.addComponent(true, attachments.get(num).retainedDuplicate());
+                result.addComponent(true, QUOTES.duplicate());
+                found++;
+
+                index = placeholderEnd;
+                prefixIndex = placeholderEnd;
+            }
+            if (found != attachments.size()) {
+                throw new IllegalStateException("Can't find attachment by index: " + found + " in packet source");
             }
+
+            result.addComponent(true, source.retainedSlice(prefixIndex, end - prefixIndex));
+            return result;
+        } catch (RuntimeException e) {
+            result.release();
+            throw e;
         }
-        return new Packet(PacketType.MESSAGE);
+    }
+
+    private boolean startsWith(ByteBuf buf, int index, byte[] prefix) {
+        if (buf.writerIndex() - index < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (buf.getByte(index + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int readNumber(ByteBuf buf, int index, int end) {
+        if (index == end || end - index > MAX_LENGTH_DIGITS) {
+            return -1;
+        }
+        int result = 0;
+        for (int i = index; i < end; i++) {
+            byte b = buf.getByte(i);
+            if (b < '0' || b > '9') {
+                return -1;
+            }
+            result = result * 10 + (b - '0');
+        }
+        return result;
     }
 
     private void parseBody(ClientHead head, ByteBuf frame, Packet packet) throws IOException {
@@ -274,8 +523,8 @@ public class PacketDecoder {
             }
 
             if (packet.hasAttachments() && !packet.isAttachmentsLoaded()) {
-                packet.setDataSource(Unpooled.copiedBuffer(frame));
-                frame.readerIndex(frame.readableBytes());
+                packet.setDataSource(frame.retainedSlice());
+                frame.readerIndex(frame.writerIndex());
                 head.setLastBinaryPacket(packet);
             }
 
@@ -283,22 +532,69 @@ public class PacketDecoder {
                 return;
             }
 
+            List<ByteBuf> attachments = null;
+            if (rawBinaryAttachments && packet.hasAttachments()) {
+                attachments = packet.getAttachments();
+            }
+
             if (packet.getSubType() == PacketType.ACK
                     || packet.getSubType() == PacketType.BINARY_ACK) {
-                ByteBufInputStream in = new ByteBufInputStream(frame);
                 AckCallback<?> callback = ackManager.getCallback(head.getSessionId(), packet.getAckId());
-                AckArgs args = jsonSupport.readAckArgs(in, callback);
+                if (callback == null) {
+                    // already timed out or unknown
+                    frame.readerIndex(frame.writerIndex());
+                    packet.setData(Collections.emptyList());
+                    return;
+                }
+                packet.setAckCallback(callback);
+
+                ByteBufInputStream in = new ByteBufInputStream(frame);
+                AckArgs args = jsonSupport.readAckArgs(in, callback, attachments);
                 packet.setData(args.getArgs());
             }
 
             if (packet.getSubType() == PacketType.EVENT
                     || packet.getSubType() == PacketType.BINARY_EVENT) {
+                // placeholders are intact in data source
+                ByteBuf source = frame;
+                if (packet.hasAttachments()) {
+                    source = packet.getDataSource();
+                }
+                int sourceIndex = source.readerIndex();
+
                 ByteBufInputStream in = new ByteBufInputStream(frame);
-                Event event = jsonSupport.readValue(packet.getNsp(), in, Event.class);
+                Event event = jsonSupport.readValue(packet.getNsp(), in, Event.class, attachments);
                 packet.setName(event.getName());
-                packet.setData(event.getArgs());
+                if (event.isRelay()) {
+                    RelayEvent relayEvent = createRelayEvent(event.getName(), source, sourceIndex, packet);
+                    packet.setData(Collections.<Object>singletonList(relayEvent));
+                } else {
+                    packet.setData(event.getArgs());
+                }
+            }
+        }
+    }
+
+    private RelayEvent createRelayEvent(String name, ByteBuf source, int index, Packet packet) {
+        byte[] json = ByteBufUtil.getBytes(source, index, source.writerIndex() - index);
+        List<byte[]> attachments = Collections.emptyList();
+        if (packet.hasAttachments()) {
+            attachments = new ArrayList<byte[]>(packet.getAttachments().size());
+            for (ByteBuf attachment : packet.getAttachments()) {
+                if (rawBinaryAttachments) {
+                    attachments.add(ByteBufUtil.getBytes(attachment));
+                } else {
+                    ByteBuf decoded = Base64.decode(attachment, attachment.readerIndex(), attachment.readableBytes(),
+                                                        Base64Dialect.STANDARD, attachment.alloc());
+                    try {
+                        attachments.add(ByteBufUtil.getBytes(decoded));
+                    } finally {
+                        decoded.release();
+                    }
+                }
             }
         }
+        return new RelayEvent(name, json, attachments);
     }
 
     private String readNamespace(ByteBuf frame) {
@@ -314,13 +610,27 @@ public class PacketDecoder {
 
         int endIndex = buffer.bytesBefore((byte) '?');
         if (endIndex > 0) {
-            return readString(buffer, endIndex);
+            return readNamespace(buffer, endIndex);
         }
         endIndex = buffer.bytesBefore((byte) ',');
         if (endIndex > 0) {
-            return readString(buffer, endIndex);
+            return readNamespace(buffer, endIndex);
+        }
+        return readNamespace(buffer, buffer.readableBytes());
+    }
+
+    /**
+     * Reads namespace name resolving it against
+     * names of existing namespaces first
+     * and recently seen unknown names after
+     */
+    private String readNamespace(ByteBuf frame, int length) {
+        String name = namespaceNames.get(frame, frame.readerIndex(), length);
+        if (name == null) {
+            name = unknownNamespaceNames.get(frame, frame.readerIndex(), length);
         }
-        return readString(buffer);
+        frame.skipBytes(length);
+        return name;
     }
 
 }
@@ -18,9 +18,13 @@ package com.corundumstudio.socketio.protocol;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.CompositeByteBuf;
 import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
 import io.netty.handler.codec.base64.Base64;
 import io.netty.handler.codec.base64.Base64Dialect;
+import io.netty.util.ByteProcessor;
 import io.netty.util.CharsetUtil;
 
 import java.io.IOException;
@@ -38,6 +42,39 @@ public class PacketEncoder {
     private static final byte[] JSONP_START = "]('".getBytes(CharsetUtil.UTF_8);
     private static final byte[] JSONP_END = "');".getBytes(CharsetUtil.UTF_8);
 
+    /**
+     * Max amount of digits in payload frame length
+     */
+    private static final int MAX_LENGTH_DIGITS = 10;
+
+    /**
+     * Stops on bytes which should be re-encoded as UTF-8
+     */
+    private static final ByteProcessor ASCII = new ByteProcessor() {
+        @Override
+        public boolean process(byte value) {
+            return value >= 0;
+        }
+    };
+
+    /**
+     * Stops on bytes which should be re-encoded as UTF-8
+     * or escaped inside of JSONP string literal
+     */
+    private static final ByteProcessor JSONP_ASCII = new ByteProcessor() {
+        @Override
+        public boolean process(byte value) {
+            return value >= 0 && value != '\\' && value != '\'';
+        }
+    };
+
+    /**
+     * Shared packet encoding is referenced by queues of many clients
+     * and can't be released explicitly, so it's kept in unpooled heap memory
+     * which is reclaimed by GC.
+     */
+    private static final ByteBufAllocator SHARED_ALLOCATOR = new UnpooledByteBufAllocator(false, true);
+
     private final JsonSupport jsonSupport;
     private final Configuration configuration;
 
@@ -58,86 +95,276 @@ public class PacketEncoder {
         return allocator.heapBuffer();
     }
 
-    public void encodeJsonP(Integer jsonpIndex, Queue<Packet> packets, ByteBuf out, ByteBufAllocator allocator, int limit) throws IOException {
-        boolean jsonpMode = jsonpIndex != null;
-
-        ByteBuf buf = allocateBuffer(allocator);
-
-        int i = 0;
-        while (true) {
-            Packet packet = packets.poll();
-            if (packet == null || i == limit) {
-                break;
-            }
-
-            ByteBuf packetBuf = allocateBuffer(allocator);
-            encodePacket(packet, packetBuf, allocator, true);
-
-            int packetSize = packetBuf.writerIndex();
-            buf.writeBytes(toChars(packetSize));
-            buf.writeBytes(B64_DELIMITER);
-            buf.writeBytes(packetBuf);
+    public CompositeByteBuf allocateCompositeBuffer(ByteBufAllocator allocator) {
+        if (configuration.isPreferDirectBuffer()) {
+            return allocator.compositeDirectBuffer(Integer.MAX_VALUE);
+        }
 
-            packetBuf.release();
+        return allocator.compositeHeapBuffer(Integer.MAX_VALUE);
+    }
 
-            i++;
+    public void encodeJsonP(Integer jsonpIndex, Queue<Packet> packets, ByteBuf out, ByteBufAllocator allocator, int limit) throws IOException {
+        encodeJsonP(jsonpIndex, packets, out, allocator, limit, 0);
+    }
 
-            for (ByteBuf attachment : packet.getAttachments()) {
-                ByteBuf encodedBuf = Base64.encode(attachment, Base64Dialect.URL_SAFE);
-                buf.writeBytes(toChars(encodedBuf.readableBytes() + 2));
-                buf.writeBytes(B64_DELIMITER);
-                buf.writeBytes(BINARY_HEADER);
-                buf.writeBytes(encodedBuf);
-            }
-        }
+    public void encodeJsonP(Integer jsonpIndex, Queue<Packet> packets, ByteBuf out, ByteBufAllocator allocator,
+                                int limit, int maxBytes) throws IOException {
+        boolean jsonpMode = jsonpIndex != null;
+        int start = out.writerIndex();
 
         if (jsonpMode) {
             out.writeBytes(JSONP_HEAD);
-            out.writeBytes(toChars(jsonpIndex));
+            writeChars(out, jsonpIndex);
             out.writeBytes(JSONP_START);
         }
 
-        processUtf8(buf, out, jsonpMode);
-        buf.release();
+        ByteBuf buf = allocateBuffer(allocator);
+        try {
+            int i = 0;
+            while (i < limit && !isFull(out, start, maxBytes)) {
+                Packet packet = packets.poll();
+                if (packet == null) {
+                    break;
+                }
+
+                int frameIndex = encodeFrame(packet, buf, allocator, true);
+                processUtf8(buf, frameIndex, buf.writerIndex() - frameIndex, out, jsonpMode);
+                buf.clear();
+
+                i++;
+
+                for (ByteBuf attachment : packet.getAttachments()) {
+                    ByteBuf encodedBuf = Base64.encode(attachment, attachment.readerIndex(), attachment.readableBytes(),
+                                                        false, Base64Dialect.URL_SAFE, allocator);
+                    try {
+                        writeChars(out, encodedBuf.readableBytes() + 2);
+                        out.writeBytes(B64_DELIMITER);
+                        out.writeBytes(BINARY_HEADER);
+                        processUtf8(encodedBuf, encodedBuf.readerIndex(), encodedBuf.readableBytes(), out, jsonpMode);
+                    } finally {
+                        encodedBuf.release();
+                    }
+                }
+            }
+        } finally {
+            buf.release();
+        }
 
         if (jsonpMode) {
             out.writeBytes(JSONP_END);
         }
     }
 
-    private void processUtf8(ByteBuf in, ByteBuf out, boolean jsonpMode) {
-        while (in.isReadable()) {
-            short value = (short) (in.readByte() & 0xFF);
+    private void processUtf8(ByteBuf in, int index, int length, ByteBuf out, boolean jsonpMode) {
+        ByteProcessor processor = ASCII;
+        if (jsonpMode) {
+            processor = JSONP_ASCII;
+        }
+
+        out.ensureWritable(length);
+        int end = index + length;
+        while (index < end) {
+            // copy run of bytes which don't need re-encoding at once
+            int i = in.forEachByte(index, end - index, processor);
+            if (i == -1) {
+                i = end;
+            }
+            if (i > index) {
+                out.writeBytes(in, index, i - index);
+            }
+            if (i == end) {
+                break;
+            }
+
+            short value = (short) (in.getByte(i) & 0xFF);
             if (value >>> 7 == 0) {
-                if (jsonpMode && (value == '\\' || value == '\'')) {
-                    out.writeByte('\\');
-                }
+                out.writeByte('\\');
                 out.writeByte(value);
             } else {
                 out.writeByte(((value >>> 6) | 0xC0));
                 out.writeByte(((value & 0x3F) | 0x80));
             }
+            index = i + 1;
         }
     }
 
     public void encodePackets(Queue<Packet> packets, ByteBuf buffer, ByteBufAllocator allocator, int limit) throws IOException {
-        int i = 0;
-        while (true) {
-            Packet packet = packets.poll();
-            if (packet == null || i == limit) {
-                break;
-            }
-            encodePacket(packet, buffer, allocator, false);
+        encodePackets(packets, buffer, allocator, limit, 0);
+    }
 
-            i++;
+    private boolean isFull(ByteBuf out, int start, int maxBytes) {
+        return maxBytes > 0 && out.writerIndex() - start >= maxBytes;
+    }
 
-            for (ByteBuf attachment : packet.getAttachments()) {
-                buffer.writeByte(1);
-                buffer.writeBytes(longToBytes(attachment.readableBytes() + 1));
-                buffer.writeByte(0xff);
-                buffer.writeByte(4);
-                buffer.writeBytes(attachment);
+    /**
+     * Encodes packets using binary payload framing.
+     * <p>
+     * If <code>buffer</code> is a {@link CompositeByteBuf} encoded frames,
+     * shared packets encoding and attachments are added to it as components
+     * without copying, otherwise they are copied to <code>buffer</code>.
+     *
+     * @param packets - packets queue
+     * @param buffer - target buffer
+     * @param allocator - allocator
+     * @param limit - max amount of packets to encode
+     * @param maxBytes - max amount of bytes to encode, <code>0</code> means no limit.
+     *                   Exceeded by the last encoded packet, at least one packet is always encoded.
+     * @throws IOException
+     */
+    public void encodePackets(Queue<Packet> packets, ByteBuf buffer, ByteBufAllocator allocator,
+                                int limit, int maxBytes) throws IOException {
+        encodePackets(packets, buffer, allocator, limit, maxBytes, null);
+    }
+
+    /**
+     * Encodes packets using binary payload framing,
+     * socket.io packets are encoded by <code>codec</code> as binary frames.
+     *
+     * @param packets - packets queue
+     * @param buffer - target buffer
+     * @param allocator - allocator
+     * @param limit - max amount of packets to encode
+     * @param maxBytes - max amount of bytes to encode, <code>0</code> means no limit.
+     * @param codec - codec or <code>null</code> to use default text encoding
+     * @throws IOException
+     *
+     * @see #encodePackets(Queue, ByteBuf, ByteBufAllocator, int, int)
+     */
+    public void encodePackets(Queue<Packet> packets, ByteBuf buffer, ByteBufAllocator allocator,
+                                int limit, int maxBytes, PacketCodec codec) throws IOException {
+        int start = buffer.writerIndex();
+        ByteBuf buf = allocateBuffer(allocator);
+        try {
+            int i = 0;
+            while (i < limit && !isFull(buffer, start, maxBytes)) {
+                Packet packet = packets.poll();
+                if (packet == null) {
+                    break;
+                }
+
+                if (isEncodedBy(codec, packet)) {
+                    int frameIndex = encodeBinaryFrame(packet, codec, buf);
+                    append(buffer, buf, frameIndex, buf.writerIndex() - frameIndex);
+                    i++;
+                    continue;
+                }
+
+                if (packet.isShared()) {
+                    ByteBuf encoded = getEncoded(packet, allocator);
+                    int headerIndex = buf.writerIndex();
+                    buf.writeByte(0);
+                    writeDigits(buf, encoded.readableBytes());
+                    buf.writeByte(0xff);
+                    append(buffer, buf, headerIndex, buf.writerIndex() - headerIndex);
+                    append(buffer, encoded, encoded.readerIndex(), encoded.readableBytes());
+                } else {
+                    int frameIndex = encodeFrame(packet, buf, allocator, false);
+                    append(buffer, buf, frameIndex, buf.writerIndex() - frameIndex);
+                }
+
+                i++;
+
+                for (ByteBuf attachment : packet.getAttachments()) {
+                    int headerIndex = buf.writerIndex();
+                    buf.writeByte(1);
+                    writeDigits(buf, attachment.readableBytes() + 1);
+                    buf.writeByte(0xff);
+                    buf.writeByte(4);
+                    append(buffer, buf, headerIndex, buf.writerIndex() - headerIndex);
+                    append(buffer, attachment, attachment.readerIndex(), attachment.readableBytes());
+                }
             }
+        } finally {
+            buf.release();
+        }
+    }
+
+    private boolean isEncodedBy(PacketCodec codec, Packet packet) {
+        return codec != null && packet.getType() == PacketType.MESSAGE;
+    }
+
+    /**
+     * Encodes packet by codec as binary engine.io message
+     * with the same length prefix reservation as {@link #encodeFrame}
+     *
+     * @return index of frame start, frame ends at <code>buf</code> writer index
+     */
+    private int encodeBinaryFrame(Packet packet, PacketCodec codec, ByteBuf buf) throws IOException {
+        buf.ensureWritable(MAX_LENGTH_DIGITS + 2);
+        int dataIndex = buf.writerIndex() + MAX_LENGTH_DIGITS + 2;
+        buf.writerIndex(dataIndex);
+
+        encodeBinaryPacket(packet, codec, buf);
+
+        int end = buf.writerIndex();
+        int length = end - dataIndex;
+        int frameIndex = dataIndex - stringSize(length) - 2;
+        buf.writerIndex(frameIndex);
+        buf.writeByte(1);
+        writeDigits(buf, length);
+        buf.writeByte(0xff);
+        buf.writerIndex(end);
+        return frameIndex;
+    }
+
+    /**
+     * Encodes socket.io packet by codec as binary engine.io message,
+     * which is sent as is in binary websocket frame.
+     * Packet attachments aren't used since codec handles binary data by itself.
+     *
+     * @param packet - packet of {@link PacketType#MESSAGE} type
+     * @param codec - codec
+     * @param buf - target buffer
+     * @throws IOException
+     */
+    public void encodeBinaryPacket(Packet packet, PacketCodec codec, ByteBuf buf) throws IOException {
+        buf.writeByte(packet.getType().getValue());
+        codec.encodePacket(packet, buf);
+    }
+
+    /**
+     * Encodes packet directly into <code>buf</code> after the space
+     * reserved for its length prefix, then backfills the prefix
+     * right before packet data. Unused part of reserved space
+     * is left before the returned frame index.
+     *
+     * @param packet - packet
+     * @param buf - target buffer
+     * @param allocator - allocator
+     * @param b64 - <code>true</code> for <code>len:data</code> framing,
+     *              <code>false</code> for binary framing
+     * @return index of frame start, frame ends at <code>buf</code> writer index
+     * @throws IOException
+     */
+    private int encodeFrame(Packet packet, ByteBuf buf, ByteBufAllocator allocator, boolean b64) throws IOException {
+        int prefixSize = b64 ? 1 : 2;
+        buf.ensureWritable(MAX_LENGTH_DIGITS + prefixSize);
+        int dataIndex = buf.writerIndex() + MAX_LENGTH_DIGITS + prefixSize;
+        buf.writerIndex(dataIndex);
+
+        encodePacket(packet, buf, allocator, true);
+
+        int end = buf.writerIndex();
+        int length = end - dataIndex;
+        int frameIndex = dataIndex - stringSize(length) - prefixSize;
+        buf.writerIndex(frameIndex);
+        if (b64) {
+            writeChars(buf, length);
+            buf.writeBytes(B64_DELIMITER);
+        } else {
+            buf.writeByte(0);
+            writeDigits(buf, length);
+            buf.writeByte(0xff);
+        }
+        buf.writerIndex(end);
+        return frameIndex;
+    }
+
+    private void append(ByteBuf out, ByteBuf src, int index, int length) {
+        if (out instanceof CompositeByteBuf) {
+            ((CompositeByteBuf) out).addComponent(true, src.retainedSlice(index, length));
+        } else {
+            out.writeBytes(src, index, length);
         }
     }
 
@@ -159,177 +386,272 @@ public class PacketEncoder {
             '1', '2', '3', '4', '5', '6', '7', '8', '9', '0', '1', '2', '3', '4', '5', '6', '7', '8', '9',
             '0', '1', '2', '3', '4', '5', '6', '7', '8', '9',};
 
-    static final char[] digits = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e',
-            'f', 'g', 'h', 'i', 'j', 'k', 'l', 'm', 'n', 'o', 'p', 'q', 'r', 's', 't', 'u', 'v', 'w', 'x',
-            'y', 'z'};
-
-    static final int[] sizeTable = {9, 99, 999, 9999, 99999, 999999, 9999999, 99999999, 999999999,
-            Integer.MAX_VALUE};
-
     // Requires positive x
     static int stringSize(long x) {
-        for (int i = 0;; i++)
-            if (x <= sizeTable[i])
-                return i + 1;
+        long p = 10;
+        for (int i = 1; i < 19; i++) {
+            if (x < p)
+                return i;
+            p = 10 * p;
+        }
+        return 19;
+    }
+
+    static int charsSize(long i) {
+        return (i < 0) ? stringSize(-i) + 1 : stringSize(i);
     }
 
-    static void getChars(long i, int index, byte[] buf) {
-        long q, r;
-        int charPos = index;
-        byte sign = 0;
+    /**
+     * Writes decimal representation of number
+     * directly to buffer without intermediate allocations.
+     *
+     * @param buf - target buffer
+     * @param i - number
+     * @param zero - value of zero digit, <code>'0'</code> for chars or <code>0</code> for raw digits
+     */
+    static void writeNumber(ByteBuf buf, long i, int zero) {
+        int size = charsSize(i);
+        buf.ensureWritable(size);
+        int startPos = buf.writerIndex();
+        int charPos = startPos + size;
+        buf.writerIndex(charPos);
 
         if (i < 0) {
-            sign = '-';
+            buf.setByte(startPos, '-');
             i = -i;
         }
 
+        long q;
+        int r;
+        int offset = zero - '0';
+
         // Generate two digits per iteration
         while (i >= 65536) {
             q = i / 100;
             // really: r = i - (q * 100);
-            r = i - ((q << 6) + (q << 5) + (q << 2));
+            r = (int) (i - ((q << 6) + (q << 5) + (q << 2)));
             i = q;
-            buf[--charPos] = (byte) DigitOnes[(int)r];
-            buf[--charPos] = (byte) DigitTens[(int)r];
+            buf.setByte(--charPos, DigitOnes[r] + offset);
+            buf.setByte(--charPos, DigitTens[r] + offset);
         }
 
         // Fall thru to fast mode for smaller numbers
         // assert(i <= 65536, i);
         for (;;) {
             q = (i * 52429) >>> (16 + 3);
-            r = i - ((q << 3) + (q << 1)); // r = i-(q*10) ...
-            buf[--charPos] = (byte) digits[(int)r];
+            r = (int) (i - ((q << 3) + (q << 1))); // r = i-(q*10) ...
+            buf.setByte(--charPos, r + zero);
             i = q;
             if (i == 0)
                 break;
         }
-        if (sign != 0) {
-            buf[--charPos] = sign;
-        }
+    }
+
+    /**
+     * Writes number as ASCII chars
+     *
+     * @param buf - target buffer
+     * @param i - number
+     */
+    public static void writeChars(ByteBuf buf, long i) {
+        writeNumber(buf, i, '0');
+    }
+
+    /**
+     * Writes number as sequence of raw digits,
+     * used in binary payload length header
+     *
+     * @param buf - target buffer
+     * @param number - positive number
+     */
+    public static void writeDigits(ByteBuf buf, long number) {
+        writeNumber(buf, number, 0);
     }
 
     public static byte[] toChars(long i) {
-        int size = (i < 0) ? stringSize(-i) + 1 : stringSize(i);
-        byte[] buf = new byte[size];
-        getChars(i, size, buf);
-        return buf;
+        byte[] res = new byte[charsSize(i)];
+        writeChars(Unpooled.wrappedBuffer(res).clear(), i);
+        return res;
     }
 
     public static byte[] longToBytes(long number) {
-        // TODO optimize
-        int length = (int)(Math.log10(number)+1);
-        byte[] res = new byte[length];
-        int i = length;
-        while (number > 0) {
-            res[--i] = (byte) (number % 10);
-            number = number / 10;
-        }
+        byte[] res = new byte[stringSize(number)];
+        writeDigits(Unpooled.wrappedBuffer(res).clear(), number);
         return res;
     }
 
+    /**
+     * Encodes shared packet only once, subsequent invocations
+     * reuse its encoded form.
+     *
+     * @param packet - shared packet
+     * @param allocator - allocator for temporary buffers
+     * @return retained duplicate of packet encoded form, should be released by caller
+     * @throws IOException - if packet can't be encoded
+     *
+     * @see Packet#shareWithNsp(String)
+     */
+    public ByteBuf encodeSharedPacket(Packet packet, ByteBufAllocator allocator) throws IOException {
+        return getEncoded(packet, allocator).retainedDuplicate();
+    }
+
+    private ByteBuf getEncoded(Packet packet, ByteBufAllocator allocator) throws IOException {
+        ByteBuf encoded = packet.getEncoded();
+        if (encoded == null) {
+            synchronized (packet) {
+                encoded = packet.getEncoded();
+                if (encoded == null) {
+                    encoded = SHARED_ALLOCATOR.heapBuffer();
+                    encodePacketData(packet, encoded, allocator);
+                    packet.setEncoded(encoded);
+                }
+            }
+        }
+        return encoded;
+    }
+
     public void encodePacket(Packet packet, ByteBuf buffer, ByteBufAllocator allocator, boolean binary) throws IOException {
-        ByteBuf buf = buffer;
-        if (!binary) {
-            buf = allocateBuffer(allocator);
+        if (packet.isShared()) {
+            ByteBuf encoded = getEncoded(packet, allocator);
+            if (!binary) {
+                buffer.writeByte(0);
+                writeDigits(buffer, encoded.readableBytes());
+                buffer.writeByte(0xff);
+            }
+            buffer.writeBytes(encoded, encoded.readerIndex(), encoded.readableBytes());
+            return;
+        }
+
+        if (binary) {
+            encodePacketData(packet, buffer, allocator);
+            return;
         }
+
+        ByteBuf buf = allocateBuffer(allocator);
+        try {
+            encodePacketData(packet, buf, allocator);
+        } finally {
+            // we need to write a buffer in any case
+            buffer.writeByte(0);
+            writeDigits(buffer, buf.writerIndex());
+            buffer.writeByte(0xff);
+            buffer.writeBytes(buf);
+
+            buf.release();
+        }
+    }
+
+    private void encodePacketData(Packet packet, ByteBuf buf, ByteBufAllocator allocator) throws IOException {
         byte type = toChar(packet.getType().getValue());
         buf.writeByte(type);
 
-        try {
-            switch (packet.getType()) {
+        switch (packet.getType()) {
 
-                case PONG: {
-                    buf.writeBytes(packet.getData().toString().getBytes(CharsetUtil.UTF_8));
+            case PONG: {
+                ByteBufUtil.writeUtf8(buf, packet.getData().toString());
+                break;
+            }
+
+            case OPEN: {
+                ByteBufOutputStream out = new ByteBufOutputStream(buf);
+                jsonSupport.writeValue(out, packet.getData());
+                break;
+            }
+
+            case MESSAGE: {
+
+                if (packet.getSubType() == PacketType.EVENT
+                        || packet.getSubType() == PacketType.ACK) {
+                    encodeArgs(packet, buf, allocator);
                     break;
                 }
 
-                case OPEN: {
+                writeMessageHeader(packet, buf);
+
+                if (packet.getSubType() == PacketType.ERROR) {
                     ByteBufOutputStream out = new ByteBufOutputStream(buf);
                     jsonSupport.writeValue(out, packet.getData());
-                    break;
                 }
 
-                case MESSAGE: {
-
-                    ByteBuf encBuf = null;
-
-                    if (packet.getSubType() == PacketType.ERROR) {
-                        encBuf = allocateBuffer(allocator);
-
-                        ByteBufOutputStream out = new ByteBufOutputStream(encBuf);
-                        jsonSupport.writeValue(out, packet.getData());
-                    }
+                break;
+            }
+        }
+    }
 
-                    if (packet.getSubType() == PacketType.EVENT
-                            || packet.getSubType() == PacketType.ACK) {
-
-                        List<Object> values = new ArrayList<Object>();
-                        if (packet.getSubType() == PacketType.EVENT) {
-                            values.add(packet.getName());
-                        }
-
-                        encBuf = allocateBuffer(allocator);
-
-                        List<Object> args = packet.getData();
-                        values.addAll(args);
-                        ByteBufOutputStream out = new ByteBufOutputStream(encBuf);
-                        jsonSupport.writeValue(out, values);
-
-                        if (!jsonSupport.getArrays().isEmpty()) {
-                            packet.initAttachments(jsonSupport.getArrays().size());
-                            for (byte[] array : jsonSupport.getArrays()) {
-                                packet.addAttachment(Unpooled.wrappedBuffer(array));
-                            }
-                            packet.setSubType(packet.getSubType() == PacketType.ACK
-                                    ? PacketType.BINARY_ACK : PacketType.BINARY_EVENT);
-                        }
-                    }
+    private void encodeArgs(Packet packet, ByteBuf buf, ByteBufAllocator allocator) throws IOException {
+        if (packet.getData() instanceof RelayEvent) {
+            encodeRelayEvent(packet, buf);
+            return;
+        }
 
-                    byte subType = toChar(packet.getSubType().getValue());
-                    buf.writeByte(subType);
+        int headerIndex = buf.writerIndex();
+        writeMessageHeader(packet, buf);
+        int argsIndex = buf.writerIndex();
 
-                    if (packet.hasAttachments()) {
-                        byte[] ackId = toChars(packet.getAttachments().size());
-                        buf.writeBytes(ackId);
-                        buf.writeByte('-');
-                    }
+        String name = null;
+        if (packet.getSubType() == PacketType.EVENT) {
+            name = packet.getName();
+        }
+        List<Object> args = packet.getData();
+        ByteBufOutputStream out = new ByteBufOutputStream(buf);
+        List<ByteBuf> attachments = new ArrayList<ByteBuf>(0);
+        jsonSupport.writeArgs(out, name, args, attachments);
+
+        if (!attachments.isEmpty()) {
+            packet.initAttachments(attachments.size());
+            for (ByteBuf attachment : attachments) {
+                packet.addAttachment(attachment);
+            }
+            packet.setSubType(packet.getSubType() == PacketType.ACK
+                    ? PacketType.BINARY_ACK : PacketType.BINARY_EVENT);
+
+            // attachments are known only after serialization,
+            // so header should be rewritten
+            ByteBuf argsBuf = allocateBuffer(allocator);
+            argsBuf.writeBytes(buf, argsIndex, buf.writerIndex() - argsIndex);
+            buf.writerIndex(headerIndex);
+            writeMessageHeader(packet, buf);
+            buf.writeBytes(argsBuf);
+            argsBuf.release();
+        }
+    }
 
-                    if (packet.getSubType() == PacketType.CONNECT) {
-                        if (!packet.getNsp().isEmpty()) {
-                            buf.writeBytes(packet.getNsp().getBytes(CharsetUtil.UTF_8));
-                        }
-                    } else {
-                        if (!packet.getNsp().isEmpty()) {
-                            buf.writeBytes(packet.getNsp().getBytes(CharsetUtil.UTF_8));
-                            buf.writeByte(',');
-                        }
-                    }
+    private void encodeRelayEvent(Packet packet, ByteBuf buf) {
+        RelayEvent event = packet.getData();
+        if (!event.getAttachments().isEmpty()) {
+            packet.initAttachments(event.getAttachments().size());
+            for (byte[] array : event.getAttachments()) {
+                packet.addAttachment(Unpooled.wrappedBuffer(array));
+            }
+            packet.setSubType(PacketType.BINARY_EVENT);
+        }
+        writeMessageHeader(packet, buf);
+        buf.writeBytes(event.getJson());
+    }
 
-                    if (packet.getAckId() != null) {
-                        byte[] ackId = toChars(packet.getAckId());
-                        buf.writeBytes(ackId);
-                    }
+    private void writeMessageHeader(Packet packet, ByteBuf buf) {
+        byte subType = toChar(packet.getSubType().getValue());
+        buf.writeByte(subType);
 
-                    if (encBuf != null) {
-                        buf.writeBytes(encBuf);
-                        encBuf.release();
-                    }
+        if (packet.hasAttachments()) {
+            writeChars(buf, packet.getAttachments().size());
+            buf.writeByte('-');
+        }
 
-                    break;
-                }
+        if (packet.getSubType() == PacketType.CONNECT) {
+            if (!packet.getNsp().isEmpty()) {
+                ByteBufUtil.writeUtf8(buf, packet.getNsp());
             }
-        } finally {
-            // we need to write a buffer in any case
-            if (!binary) {
-                buffer.writeByte(0);
-                int length = buf.writerIndex();
-                buffer.writeBytes(longToBytes(length));
-                buffer.writeByte(0xff);
-                buffer.writeBytes(buf);
-
-                buf.release();
+        } else {
+            if (!packet.getNsp().isEmpty()) {
+                ByteBufUtil.writeUtf8(buf, packet.getNsp());
+                buf.writeByte(',');
             }
         }
+
+        if (packet.getAckId() != null) {
+            writeChars(buf, packet.getAckId());
+        }
     }
 
     public static int find(ByteBuf buffer, ByteBuf searchValue) {
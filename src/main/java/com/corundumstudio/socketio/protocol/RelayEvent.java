@@ -0,0 +1,85 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.protocol;
+
+import java.io.Serializable;
+import java.util.List;
+
+import com.corundumstudio.socketio.BroadcastOperations;
+import com.corundumstudio.socketio.SocketIOClient;
+
+/**
+ * Event received from client with arguments kept in encoded form.
+ * <p>
+ * Declare it as event class of listener to get event which could be relayed
+ * to other clients by {@link BroadcastOperations#relay(RelayEvent)}
+ * or {@link SocketIOClient#send(Packet)} with {@link #createPacket()}.
+ * Its arguments are neither deserialized on receiving nor serialized on sending,
+ * only packet header is re-encoded for target namespace.
+ */
+public class RelayEvent implements Serializable {
+
+    private static final long serialVersionUID = -3219316464853102587L;
+
+    private final String name;
+    private final byte[] json;
+    private final List<byte[]> attachments;
+
+    public RelayEvent(String name, byte[] json, List<byte[]> attachments) {
+        super();
+        this.name = name;
+        this.json = json;
+        this.attachments = attachments;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns event JSON array, including its name,
+     * in UTF-8 encoding exactly as it was received.
+     * Returned array should not be modified.
+     *
+     * @return JSON bytes
+     */
+    public byte[] getJson() {
+        return json;
+    }
+
+    /**
+     * Returns binary attachments referenced by placeholders in event JSON
+     *
+     * @return attachments
+     */
+    public List<byte[]> getAttachments() {
+        return attachments;
+    }
+
+    /**
+     * Creates event packet which is encoded using this event data as is
+     *
+     * @return packet
+     */
+    public Packet createPacket() {
+        Packet packet = new Packet(PacketType.MESSAGE);
+        packet.setSubType(PacketType.EVENT);
+        packet.setName(name);
+        packet.setData(this);
+        return packet;
+    }
+
+}
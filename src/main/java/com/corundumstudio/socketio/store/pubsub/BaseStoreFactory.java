@@ -61,6 +61,14 @@ public abstract class BaseStoreFactory implements StoreFactory {
             }
         }, DispatchMessage.class);
 
+        pubSubStore().subscribe(PubSubType.DISPATCH_ROOMS, new PubSubListener<DispatchMessage>() {
+            @Override
+            public void onMessage(DispatchMessage msg) {
+                namespacesHub.get(msg.getNamespace()).dispatch(msg.getRooms(), msg.getExceptRooms(), msg.getPacket());
+                log.debug("{} packet: {}", PubSubType.DISPATCH_ROOMS, msg.getPacket());
+            }
+        }, DispatchMessage.class);
+
         pubSubStore().subscribe(PubSubType.JOIN, new PubSubListener<JoinLeaveMessage>() {
             @Override
             public void onMessage(JoinLeaveMessage msg) {
@@ -15,6 +15,8 @@
  */
 package com.corundumstudio.socketio.store.pubsub;
 
+import java.util.Set;
+
 import com.corundumstudio.socketio.protocol.Packet;
 
 public class DispatchMessage extends PubSubMessage {
@@ -22,6 +24,8 @@ public class DispatchMessage extends PubSubMessage {
     private static final long serialVersionUID = 6692047718303934349L;
 
     private String room;
+    private Set<String> rooms;
+    private Set<String> exceptRooms;
     private String namespace;
     private Packet packet;
 
@@ -34,6 +38,13 @@ public class DispatchMessage extends PubSubMessage {
         this.namespace = namespace;
     }
 
+    public DispatchMessage(Set<String> rooms, Set<String> exceptRooms, Packet packet, String namespace) {
+        this.rooms = rooms;
+        this.exceptRooms = exceptRooms;
+        this.packet = packet;
+        this.namespace = namespace;
+    }
+
     public String getNamespace() {
         return namespace;
     }
@@ -46,4 +57,17 @@ public class DispatchMessage extends PubSubMessage {
         return room;
     }
 
+    /**
+     * Rooms are set only for {@link PubSubType#DISPATCH_ROOMS} messages
+     *
+     * @return names of rooms or <code>null</code> if packet is sent to single room
+     */
+    public Set<String> getRooms() {
+        return rooms;
+    }
+
+    public Set<String> getExceptRooms() {
+        return exceptRooms;
+    }
+
 }
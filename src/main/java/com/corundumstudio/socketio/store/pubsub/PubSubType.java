@@ -17,7 +17,14 @@ package com.corundumstudio.socketio.store.pubsub;
 
 public enum PubSubType {
 
-    CONNECT, DISCONNECT, JOIN, LEAVE, DISPATCH;
+    CONNECT, DISCONNECT, JOIN, LEAVE, DISPATCH,
+
+    /**
+     * Dispatch to several rooms of namespace.
+     * Nodes of versions without this type don't subscribe to it,
+     * so their clients don't receive such packets.
+     */
+    DISPATCH_ROOMS;
 
     @Override
     public String toString() {
@@ -28,6 +28,7 @@ import com.corundumstudio.socketio.AckCallback;
 import com.corundumstudio.socketio.HandshakeData;
 import com.corundumstudio.socketio.SocketIOClient;
 import com.corundumstudio.socketio.Transport;
+import com.corundumstudio.socketio.handler.BroadcastBatch;
 import com.corundumstudio.socketio.handler.ClientHead;
 import com.corundumstudio.socketio.namespace.Namespace;
 import com.corundumstudio.socketio.protocol.Packet;
@@ -40,11 +41,34 @@ public class NamespaceClient implements SocketIOClient {
     private final AtomicBoolean disconnected = new AtomicBoolean();
     private final ClientHead baseClient;
     private final Namespace namespace;
+    private final int slot;
+    private final Object roomsLock = new Object();
 
     public NamespaceClient(ClientHead baseClient, Namespace namespace) {
         this.baseClient = baseClient;
         this.namespace = namespace;
-        namespace.addClient(this);
+        this.slot = namespace.addClient(this);
+    }
+
+    /**
+     * Dense id of client inside its namespace,
+     * could be reused after client disconnection
+     *
+     * @return id
+     */
+    public int getSlot() {
+        return slot;
+    }
+
+    /**
+     * Monitor which serializes room membership changes
+     * of this client with its disconnection.
+     * Used by {@link Namespace} only.
+     *
+     * @return lock object
+     */
+    public Object getRoomsLock() {
+        return roomsLock;
     }
 
     public ClientHead getBaseClient() {
@@ -108,6 +132,14 @@ public class NamespaceClient implements SocketIOClient {
         baseClient.send(packet.withNsp(namespace.getName()));
     }
 
+    public void send(Packet packet, BroadcastBatch batch) {
+        if (!isConnected()) {
+            return;
+        }
+
+        baseClient.send(packet.withNsp(namespace.getName()), batch);
+    }
+
     public void onDisconnect() {
         disconnected.set(true);
 
@@ -177,6 +209,16 @@ public class NamespaceClient implements SocketIOClient {
         namespace.leaveRoom(room, getSessionId());
     }
 
+    @Override
+    public void joinRooms(Set<String> rooms) {
+        namespace.joinRooms(rooms, getSessionId());
+    }
+
+    @Override
+    public void leaveRooms(Set<String> rooms) {
+        namespace.leaveRooms(rooms, getSessionId());
+    }
+
     @Override
     public void set(String key, Object val) {
         baseClient.getStore().set(key, val);
@@ -155,7 +155,13 @@ public class PollingTransport extends ChannelInboundHandlerAdapter {
         Boolean b64 = ctx.channel().attr(EncoderHandler.B64).get();
         if (b64 != null && b64) {
             Integer jsonIndex = ctx.channel().attr(EncoderHandler.JSONP_INDEX).get();
-            content = decoder.preprocessJson(jsonIndex, content);
+            ByteBuf json = decoder.preprocessJson(jsonIndex, content, ctx.alloc());
+            try {
+                ctx.pipeline().fireChannelRead(new PacketsMessage(client, json, Transport.POLLING));
+            } finally {
+                json.release();
+            }
+            return;
         }
 
         ctx.pipeline().fireChannelRead(new PacketsMessage(client, content, Transport.POLLING));
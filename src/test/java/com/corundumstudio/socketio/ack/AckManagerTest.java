@@ -0,0 +1,117 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.ack;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.util.CharsetUtil;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.corundumstudio.socketio.Configuration;
+import com.corundumstudio.socketio.HandshakeData;
+import com.corundumstudio.socketio.MultiTypeAckCallback;
+import com.corundumstudio.socketio.MultiTypeArgs;
+import com.corundumstudio.socketio.Transport;
+import com.corundumstudio.socketio.handler.ClientHead;
+import com.corundumstudio.socketio.handler.ClientsBox;
+import com.corundumstudio.socketio.misc.InternedStrings;
+import com.corundumstudio.socketio.namespace.Namespace;
+import com.corundumstudio.socketio.protocol.JacksonJsonSupport;
+import com.corundumstudio.socketio.protocol.Packet;
+import com.corundumstudio.socketio.protocol.PacketDecoder;
+import com.corundumstudio.socketio.scheduler.HashedWheelScheduler;
+import com.corundumstudio.socketio.store.MemoryStoreFactory;
+import com.corundumstudio.socketio.transport.NamespaceClient;
+
+public class AckManagerTest {
+
+    private HashedWheelScheduler scheduler;
+    private AckManager ackManager;
+    private PacketDecoder decoder;
+    private ClientHead client;
+    private NamespaceClient namespaceClient;
+
+    @Before
+    public void before() {
+        scheduler = new HashedWheelScheduler();
+        ackManager = new AckManager(scheduler);
+        decoder = new PacketDecoder(new Configuration(), new JacksonJsonSupport(), ackManager, new InternedStrings());
+        Configuration configuration = new Configuration();
+        client = new ClientHead(UUID.randomUUID(), ackManager, null, new MemoryStoreFactory(),
+                new HandshakeData(new DefaultHttpHeaders(), null, null, null, false),
+                new ClientsBox(), Transport.WEBSOCKET, null, configuration);
+        namespaceClient = new NamespaceClient(client, new Namespace("", configuration));
+    }
+
+    @After
+    public void after() {
+        scheduler.shutdown();
+    }
+
+    private Packet decode(String packet) throws IOException {
+        return decoder.decodePackets(Unpooled.copiedBuffer(packet, CharsetUtil.UTF_8), client);
+    }
+
+    @Test
+    public void testTypedAckArgs() throws IOException {
+        final List<MultiTypeArgs> results = new ArrayList<MultiTypeArgs>();
+        MultiTypeAckCallback callback = new MultiTypeAckCallback(Long.class, String.class, Long.class) {
+            @Override
+            public void onSuccess(MultiTypeArgs result) {
+                results.add(result);
+            }
+        };
+        long ackId = ackManager.registerAck(client.getSessionId(), callback);
+
+        Packet packet = decode("43" + ackId + "[1,\"ok\",null,{\"a\":2}]");
+        assertSame(callback, packet.getAckCallback());
+        List<Object> args = packet.getData();
+        assertEquals(Long.valueOf(1), args.get(0));
+        assertEquals("ok", args.get(1));
+        assertNull(args.get(2));
+        assertEquals(Collections.singletonMap("a", 2), args.get(3));
+
+        ackManager.onAck(namespaceClient, packet);
+        ackManager.onAck(namespaceClient, packet);
+        assertEquals(1, results.size());
+        assertSame(args, results.get(0).getArgs());
+    }
+
+    @Test
+    public void testUnknownAck() throws IOException {
+        assertNull(ackManager.getCallback(client.getSessionId(), 1));
+
+        Packet packet = decode("431[\"ok\"]");
+        assertNull(packet.getAckCallback());
+        assertTrue(packet.<List<Object>>getData().isEmpty());
+        ackManager.onAck(namespaceClient, packet);
+    }
+
+}
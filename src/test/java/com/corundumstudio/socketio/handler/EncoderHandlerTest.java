@@ -0,0 +1,172 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.handler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import com.corundumstudio.socketio.Configuration;
+import com.corundumstudio.socketio.HandshakeData;
+import com.corundumstudio.socketio.Transport;
+import com.corundumstudio.socketio.messages.OutPacketMessage;
+import com.corundumstudio.socketio.protocol.JacksonJsonSupport;
+import com.corundumstudio.socketio.protocol.JacksonPacketCodec;
+import com.corundumstudio.socketio.protocol.Packet;
+import com.corundumstudio.socketio.protocol.PacketCodec;
+import com.corundumstudio.socketio.protocol.PacketEncoder;
+import com.corundumstudio.socketio.protocol.PacketType;
+import com.corundumstudio.socketio.store.MemoryStoreFactory;
+import com.fasterxml.jackson.core.JsonFactory;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.util.CharsetUtil;
+
+public class EncoderHandlerTest {
+
+    private static class FlushCounter extends ChannelOutboundHandlerAdapter {
+
+        int flushes;
+
+        @Override
+        public void flush(ChannelHandlerContext ctx) throws Exception {
+            flushes++;
+            super.flush(ctx);
+        }
+
+    }
+
+    private Packet createEvent(int i) {
+        Packet packet = new Packet(PacketType.MESSAGE);
+        packet.setSubType(PacketType.EVENT);
+        packet.setName("tick");
+        packet.setData(Arrays.asList(i));
+        return packet;
+    }
+
+    private EmbeddedChannel createChannel(Configuration configuration, FlushCounter counter) throws Exception {
+        PacketEncoder encoder = new PacketEncoder(configuration, new JacksonJsonSupport());
+        return new EmbeddedChannel(counter, new EncoderHandler(configuration, encoder));
+    }
+
+    private ClientHead createClient(Configuration configuration) {
+        return createClient(configuration, null);
+    }
+
+    private ClientHead createClient(Configuration configuration, Map<String, List<String>> urlParams) {
+        return new ClientHead(UUID.randomUUID(), null, null, new MemoryStoreFactory(),
+                                new HandshakeData(new DefaultHttpHeaders(), urlParams, null, null, false),
+                                new ClientsBox(), Transport.WEBSOCKET, null, configuration);
+    }
+
+    @Test
+    public void testDrainedFramesFlushedOnce() throws Exception {
+        Configuration configuration = new Configuration();
+        FlushCounter counter = new FlushCounter();
+        EmbeddedChannel channel = createChannel(configuration, counter);
+
+        ClientHead client = createClient(configuration);
+        for (int i = 0; i < 3; i++) {
+            client.getPacketsQueue(Transport.WEBSOCKET).add(createEvent(i));
+        }
+        channel.write(new OutPacketMessage(client, Transport.WEBSOCKET));
+
+        assertEquals(1, counter.flushes);
+        for (int i = 0; i < 3; i++) {
+            TextWebSocketFrame frame = channel.readOutbound();
+            assertEquals("42[\"tick\"," + i + "]", frame.text());
+            frame.release();
+        }
+    }
+
+    @Test
+    public void testCoalescedFlush() throws Exception {
+        Configuration configuration = new Configuration();
+        configuration.setWebsocketFlushDelay(10);
+        FlushCounter counter = new FlushCounter();
+        EmbeddedChannel channel = createChannel(configuration, counter);
+
+        ClientHead client = createClient(configuration);
+        for (int i = 0; i < 3; i++) {
+            client.getPacketsQueue(Transport.WEBSOCKET).add(createEvent(i));
+            channel.writeAndFlush(new OutPacketMessage(client, Transport.WEBSOCKET));
+        }
+
+        assertEquals(0, counter.flushes);
+        assertNull(channel.readOutbound());
+
+        Thread.sleep(20);
+        channel.runScheduledPendingTasks();
+
+        assertEquals(1, counter.flushes);
+        for (int i = 0; i < 3; i++) {
+            TextWebSocketFrame frame = channel.readOutbound();
+            assertEquals("42[\"tick\"," + i + "]", frame.text());
+            frame.release();
+        }
+    }
+
+    @Test
+    public void testScheduledFlushOnClose() throws Exception {
+        Configuration configuration = new Configuration();
+        configuration.setWebsocketFlushDelay(10000);
+        FlushCounter counter = new FlushCounter();
+        EmbeddedChannel channel = createChannel(configuration, counter);
+
+        ClientHead client = createClient(configuration);
+        client.getPacketsQueue(Transport.WEBSOCKET).add(createEvent(0));
+        channel.writeAndFlush(new OutPacketMessage(client, Transport.WEBSOCKET));
+        channel.close();
+
+        assertEquals(1, counter.flushes);
+        TextWebSocketFrame frame = channel.readOutbound();
+        assertTrue(frame.content().isReadable());
+        frame.release();
+    }
+
+    @Test
+    public void testPacketCodec() throws Exception {
+        Configuration configuration = new Configuration();
+        configuration.setPacketCodecs(Collections.<String, PacketCodec>singletonMap("json", new JacksonPacketCodec(new JsonFactory())));
+        EmbeddedChannel channel = createChannel(configuration, new FlushCounter());
+
+        ClientHead client = createClient(configuration,
+                            Collections.singletonMap("codec", Arrays.asList("json")));
+        client.getPacketsQueue(Transport.WEBSOCKET).add(createEvent(0));
+        channel.writeAndFlush(new OutPacketMessage(client, Transport.WEBSOCKET));
+
+        BinaryWebSocketFrame frame = channel.readOutbound();
+        ByteBuf content = frame.content();
+        assertEquals(4, content.readByte());
+        assertEquals("{\"type\":2,\"nsp\":\"/\",\"data\":[\"tick\",0]}", content.toString(CharsetUtil.UTF_8));
+        frame.release();
+    }
+
+}
\ No newline at end of file
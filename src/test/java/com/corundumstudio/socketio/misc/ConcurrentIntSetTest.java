@@ -0,0 +1,108 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.misc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+
+public class ConcurrentIntSetTest {
+
+    private Set<Integer> toSet(ConcurrentIntSet set) {
+        Set<Integer> result = new HashSet<Integer>();
+        for (IntIterator iterator = set.iterator(); iterator.hasNext();) {
+            assertTrue(result.add(iterator.next()));
+        }
+        return result;
+    }
+
+    @Test
+    public void testAddRemove() {
+        ConcurrentIntSet set = new ConcurrentIntSet();
+        assertTrue(set.isEmpty());
+        assertTrue(set.add(0));
+        assertFalse(set.add(0));
+        assertTrue(set.contains(0));
+        assertFalse(set.contains(1));
+
+        for (int i = 0; i < 1000; i++) {
+            set.add(i);
+        }
+        assertEquals(1000, set.size());
+        for (int i = 0; i < 1000; i += 2) {
+            assertTrue(set.remove(i));
+        }
+        assertFalse(set.remove(0));
+        assertEquals(500, set.size());
+
+        Set<Integer> values = toSet(set);
+        assertEquals(500, values.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i % 2 == 1, set.contains(i));
+            assertEquals(i % 2 == 1, values.contains(i));
+        }
+
+        for (int i = 1; i < 1000; i += 2) {
+            assertTrue(set.remove(i));
+        }
+        assertTrue(set.isEmpty());
+        assertFalse(set.iterator().hasNext());
+    }
+
+    @Test
+    public void testReuseRemovedEntries() {
+        ConcurrentIntSet set = new ConcurrentIntSet();
+        set.add(1);
+        for (int i = 0; i < 10000; i++) {
+            set.add(2);
+            set.remove(2);
+        }
+        assertEquals(1, set.size());
+        assertTrue(set.contains(1));
+        assertFalse(set.contains(2));
+    }
+
+    @Test
+    public void testIterationDuringModification() {
+        ConcurrentIntSet set = new ConcurrentIntSet();
+        for (int i = 0; i < 100; i++) {
+            set.add(i);
+        }
+
+        IntIterator iterator = set.iterator();
+        for (int i = 50; i < 100; i++) {
+            set.remove(i);
+        }
+        for (int i = 100; i < 200; i++) {
+            set.add(i);
+        }
+
+        Set<Integer> result = new HashSet<Integer>();
+        while (iterator.hasNext()) {
+            assertTrue(result.add(iterator.next()));
+        }
+        for (int i = 0; i < 50; i++) {
+            assertTrue(result.contains(i));
+        }
+    }
+
+}
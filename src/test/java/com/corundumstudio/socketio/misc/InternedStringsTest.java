@@ -0,0 +1,70 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.misc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+
+import org.junit.Test;
+
+public class InternedStringsTest {
+
+    private String get(InternedStrings strings, String value) {
+        ByteBuf buf = Unpooled.copiedBuffer("," + value + ",", CharsetUtil.UTF_8);
+        return strings.get(buf, 1, buf.readableBytes() - 2);
+    }
+
+    @Test
+    public void testGet() {
+        InternedStrings strings = new InternedStrings();
+        String value = new String("/чат");
+        strings.add(value);
+        strings.add("");
+
+        assertSame(value, get(strings, "/чат"));
+        assertEquals("", get(strings, ""));
+        assertNull(get(strings, "/chat"));
+    }
+
+    @Test
+    public void testAddRemove() {
+        InternedStrings strings = new InternedStrings();
+        for (int i = 0; i < 100; i++) {
+            strings.add("/" + i);
+            strings.add("/" + i);
+        }
+        for (int i = 0; i < 100; i++) {
+            assertEquals("/" + i, get(strings, "/" + i));
+        }
+
+        for (int i = 0; i < 100; i += 2) {
+            strings.remove("/" + i);
+        }
+        for (int i = 0; i < 100; i++) {
+            if (i % 2 == 0) {
+                assertNull(get(strings, "/" + i));
+            } else {
+                assertEquals("/" + i, get(strings, "/" + i));
+            }
+        }
+    }
+
+}
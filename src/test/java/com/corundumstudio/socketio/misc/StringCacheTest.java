@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.misc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+
+import org.junit.Test;
+
+public class StringCacheTest {
+
+    private String get(StringCache cache, String value) {
+        ByteBuf buf = Unpooled.copiedBuffer("," + value + ",", CharsetUtil.UTF_8);
+        String result = cache.get(buf, 1, buf.readableBytes() - 2);
+        assertEquals(0, buf.readerIndex());
+        return result;
+    }
+
+    private String get(StringCache cache, char[] chars, String value) {
+        value.getChars(0, value.length(), chars, 1);
+        return cache.get(chars, 1, value.length());
+    }
+
+    @Test
+    public void testBytes() {
+        StringCache cache = new StringCache(16, 8);
+        String value = get(cache, "/чат");
+        assertEquals("/чат", value);
+        assertSame(value, get(cache, "/чат"));
+        assertEquals("", get(cache, ""));
+
+        String longValue = get(cache, "/long-namespace");
+        assertEquals("/long-namespace", longValue);
+        assertNotSame(longValue, get(cache, "/long-namespace"));
+    }
+
+    @Test
+    public void testChars() {
+        StringCache cache = new StringCache(16, 8);
+        char[] chars = new char[32];
+        String value = get(cache, chars, "message");
+        assertEquals("message", value);
+        assertSame(value, get(cache, chars, "message"));
+        assertEquals("msg", get(cache, chars, "msg"));
+    }
+
+    @Test
+    public void testBounded() {
+        StringCache cache = new StringCache(4, 8);
+        char[] chars = new char[32];
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("e" + i, get(cache, chars, "e" + i));
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("e" + i, get(cache, "e" + i));
+        }
+    }
+
+}
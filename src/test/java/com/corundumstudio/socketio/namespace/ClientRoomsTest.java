@@ -0,0 +1,85 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.namespace;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class ClientRoomsTest {
+
+    private final ClientRooms clientRooms = new ClientRooms();
+
+    @Test
+    public void testJoinLeave() {
+        UUID sessionId = UUID.randomUUID();
+        clientRooms.join(sessionId, Collections.<String>emptyList());
+        assertNull(clientRooms.get(sessionId));
+
+        clientRooms.join(sessionId, Arrays.asList("room1", "room2"));
+        clientRooms.join(sessionId, Arrays.asList("room2", "room3"));
+        assertEquals(new HashSet<String>(Arrays.asList("room1", "room2", "room3")), clientRooms.get(sessionId));
+
+        clientRooms.leave(sessionId, Arrays.asList("room1", "room2"));
+        clientRooms.leave(sessionId, Arrays.asList("unknown"));
+        assertEquals(Collections.singleton("room3"), clientRooms.get(sessionId));
+
+        clientRooms.leave(sessionId, Arrays.asList("room3"));
+        assertNull(clientRooms.get(sessionId));
+
+        clientRooms.join(sessionId, Arrays.asList("room1"));
+        assertEquals(Collections.singleton("room1"), clientRooms.remove(sessionId));
+        assertNull(clientRooms.remove(sessionId));
+    }
+
+    @Test
+    public void testConcurrentChurn() throws InterruptedException {
+        final UUID sessionId = UUID.randomUUID();
+        final int threads = 4;
+        final CountDownLatch latch = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            final List<String> rooms = Arrays.asList("room" + i, "shared" + i);
+            new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 10000; j++) {
+                        clientRooms.join(sessionId, rooms);
+                        if (!clientRooms.get(sessionId).containsAll(rooms)) {
+                            return;
+                        }
+                        clientRooms.leave(sessionId, rooms);
+                    }
+                    clientRooms.join(sessionId, rooms.subList(0, 1));
+                    latch.countDown();
+                }
+            }.start();
+        }
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+
+        assertEquals(new HashSet<String>(Arrays.asList("room0", "room1", "room2", "room3")), clientRooms.get(sessionId));
+    }
+
+}
@@ -0,0 +1,327 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.namespace;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.util.CharsetUtil;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import com.corundumstudio.socketio.BroadcastOperations;
+import com.corundumstudio.socketio.Configuration;
+import com.corundumstudio.socketio.HandshakeData;
+import com.corundumstudio.socketio.MultiRoomBroadcastOperations;
+import com.corundumstudio.socketio.SocketIOClient;
+import com.corundumstudio.socketio.Transport;
+import com.corundumstudio.socketio.handler.ClientHead;
+import com.corundumstudio.socketio.handler.ClientsBox;
+import com.corundumstudio.socketio.protocol.JacksonJsonSupport;
+import com.corundumstudio.socketio.protocol.PacketEncoder;
+import com.corundumstudio.socketio.protocol.RelayEvent;
+import com.corundumstudio.socketio.store.MemoryPubSubStore;
+import com.corundumstudio.socketio.store.MemoryStoreFactory;
+import com.corundumstudio.socketio.store.pubsub.PubSubMessage;
+import com.corundumstudio.socketio.store.pubsub.PubSubStore;
+import com.corundumstudio.socketio.store.pubsub.PubSubType;
+import com.corundumstudio.socketio.transport.NamespaceClient;
+
+public class NamespaceTest {
+
+    private final Configuration configuration = new Configuration();
+    private final Namespace namespace = new Namespace("/chat", configuration);
+
+    private NamespaceClient createClient() {
+        return createClient(namespace);
+    }
+
+    private NamespaceClient createClient(Namespace namespace) {
+        ClientHead client = new ClientHead(UUID.randomUUID(), null, null, new MemoryStoreFactory(),
+                new HandshakeData(new DefaultHttpHeaders(), null, null, null, false),
+                new ClientsBox(), Transport.WEBSOCKET, null, configuration);
+        return new NamespaceClient(client, namespace);
+    }
+
+    private Set<SocketIOClient> getRoomClients(String room) {
+        Set<SocketIOClient> result = new HashSet<SocketIOClient>();
+        for (SocketIOClient client : namespace.getRoomClients(room)) {
+            result.add(client);
+        }
+        return result;
+    }
+
+    @Test
+    public void testRoomClients() {
+        NamespaceClient client1 = createClient();
+        NamespaceClient client2 = createClient();
+        namespace.join("room", client1.getSessionId());
+        namespace.join("room", client2.getSessionId());
+        namespace.join("room", client2.getSessionId());
+        // session of other node
+        namespace.join("room", UUID.randomUUID());
+
+        Set<SocketIOClient> clients = getRoomClients("room");
+        assertEquals(2, clients.size());
+        assertTrue(clients.contains(client1));
+        assertTrue(clients.contains(client2));
+        assertTrue(namespace.getRooms(client1).contains("room"));
+
+        namespace.leave("room", client1.getSessionId());
+        Iterator<SocketIOClient> iterator = namespace.getRoomClients("room").iterator();
+        assertSame(client2, iterator.next());
+        assertFalse(iterator.hasNext());
+
+        namespace.onDisconnect(client2);
+        assertFalse(namespace.getRoomClients("room").iterator().hasNext());
+        assertFalse(namespace.getRooms().contains("room"));
+    }
+
+    @Test
+    public void testRoomsClients() {
+        NamespaceClient client1 = createClient();
+        NamespaceClient client2 = createClient();
+        NamespaceClient client3 = createClient();
+        namespace.join("room1", client1.getSessionId());
+        namespace.join("room2", client1.getSessionId());
+        namespace.join("room2", client2.getSessionId());
+        namespace.join("room3", client2.getSessionId());
+        namespace.join("room3", client3.getSessionId());
+        namespace.join("muted", client3.getSessionId());
+
+        List<SocketIOClient> clients = new ArrayList<SocketIOClient>();
+        for (SocketIOClient client : namespace.getRoomClients(Arrays.asList("room1", "room2", "room3", "unknown"),
+                                                                Arrays.asList("muted"))) {
+            clients.add(client);
+        }
+        assertEquals(2, clients.size());
+        assertTrue(clients.contains(client1));
+        assertTrue(clients.contains(client2));
+
+        Collection<SocketIOClient> allClients = namespace.to("room1", "room2").to("room3").getClients();
+        assertEquals(3, allClients.size());
+        assertEquals(1, namespace.to("room2", "room3").except("room1", "muted").getClients().size());
+    }
+
+    @Test
+    public void testRoomsDispatch() {
+        final List<PubSubType> types = new ArrayList<PubSubType>();
+        Configuration configuration = new Configuration();
+        configuration.setStoreFactory(new MemoryStoreFactory() {
+            @Override
+            public PubSubStore pubSubStore() {
+                return new MemoryPubSubStore() {
+                    @Override
+                    public void publish(PubSubType type, PubSubMessage msg) {
+                        types.add(type);
+                    }
+                };
+            }
+        });
+        Namespace namespace = new Namespace("/chat", configuration);
+
+        namespace.to("room1", "room2").sendEvent("msg");
+        namespace.getRoomOperations("room1").sendEvent("msg");
+        // nodes of previous versions don't subscribe to multi-room messages
+        assertEquals(Arrays.asList(PubSubType.DISPATCH_ROOMS, PubSubType.DISPATCH), types);
+    }
+
+    @Test
+    public void testBulkJoinLeave() {
+        NamespaceClient client = createClient();
+        Set<String> rooms = new HashSet<String>(Arrays.asList("room1", "room2", "room3"));
+        client.joinRooms(rooms);
+        assertEquals(rooms, client.getAllRooms());
+        assertTrue(getRoomClients("room2").contains(client));
+
+        client.leaveRooms(new HashSet<String>(Arrays.asList("room1", "room2")));
+        assertEquals(Collections.singleton("room3"), client.getAllRooms());
+        assertEquals(Collections.singleton("room3"), namespace.getRooms());
+
+        namespace.onDisconnect(client);
+        assertTrue(namespace.getRooms().isEmpty());
+    }
+
+    @Test
+    public void testMultiRoomRelay() {
+        NamespaceClient client1 = createClient();
+        NamespaceClient client2 = createClient();
+        namespace.join("room1", client1.getSessionId());
+        namespace.join("room2", client1.getSessionId());
+        namespace.join("room2", client2.getSessionId());
+
+        BroadcastOperations operations = new MultiRoomBroadcastOperations(Arrays.asList(
+                namespace.getRoomOperations("room1"), namespace.getRoomOperations("room2")));
+        operations.relay(new RelayEvent("msg", "[\"msg\"]".getBytes(CharsetUtil.UTF_8), null), client2);
+        assertEquals(1, client1.getBaseClient().getPacketsQueue(Transport.WEBSOCKET).size());
+        assertTrue(client2.getBaseClient().getPacketsQueue(Transport.WEBSOCKET).isEmpty());
+    }
+
+    private String encodeQueue(NamespaceClient client) throws IOException {
+        PacketEncoder encoder = new PacketEncoder(configuration, new JacksonJsonSupport());
+        ByteBuf out = Unpooled.buffer();
+        encoder.encodePackets(client.getBaseClient().getPacketsQueue(Transport.WEBSOCKET), out,
+                                UnpooledByteBufAllocator.DEFAULT, 10);
+        return out.toString(CharsetUtil.UTF_8);
+    }
+
+    @Test
+    public void testMultiRoomBinaryRelay() throws IOException {
+        // relay packet isn't copied for clients of default namespace
+        Namespace namespace = new Namespace(Namespace.DEFAULT_NAME, configuration);
+        NamespaceClient client1 = createClient(namespace);
+        NamespaceClient client2 = createClient(namespace);
+        NamespaceClient client3 = createClient(namespace);
+        namespace.join("room1", client1.getSessionId());
+        namespace.join("room2", client2.getSessionId());
+        namespace.join("room2", client3.getSessionId());
+
+        BroadcastOperations operations = new MultiRoomBroadcastOperations(Arrays.asList(
+                namespace.getRoomOperations("room1"), namespace.getRoomOperations("room2")));
+        byte[] json = "[\"msg\",{\"_placeholder\":true,\"num\":0}]".getBytes(CharsetUtil.UTF_8);
+        operations.relay(new RelayEvent("msg", json, Collections.singletonList("data".getBytes(CharsetUtil.UTF_8))));
+
+        String encoded = encodeQueue(client1);
+        assertTrue(encoded.contains("451-[\"msg\",{\"_placeholder\":true,\"num\":0}]"));
+        assertTrue(encoded.endsWith("data"));
+        assertEquals(encoded, encodeQueue(client2));
+        assertEquals(encoded, encodeQueue(client3));
+    }
+
+    @Test
+    public void testSlotReuse() {
+        NamespaceClient client1 = createClient();
+        NamespaceClient client2 = createClient();
+        assertEquals(0, client1.getSlot());
+        assertEquals(1, client2.getSlot());
+        namespace.join("room", client1.getSessionId());
+
+        namespace.onDisconnect(client1);
+        namespace.onDisconnect(client1);
+        NamespaceClient client3 = createClient();
+        assertEquals(0, client3.getSlot());
+        assertFalse(namespace.getRoomClients("room").iterator().hasNext());
+
+        namespace.join("room", client3.getSessionId());
+        assertSame(client3, namespace.getRoomClients("room").iterator().next());
+        assertSame(client2, namespace.getClient(client2.getSessionId()));
+    }
+
+    @Test
+    public void testRepeatedConnect() {
+        ClientHead head = new ClientHead(UUID.randomUUID(), null, null, new MemoryStoreFactory(),
+                new HandshakeData(new DefaultHttpHeaders(), null, null, null, false),
+                new ClientsBox(), Transport.WEBSOCKET, null, configuration);
+        NamespaceClient client = head.addNamespaceClient(namespace);
+        namespace.join("room", client.getSessionId());
+        // CONNECT packet sent twice
+        assertSame(client, head.addNamespaceClient(namespace));
+        namespace.join("room", client.getSessionId());
+
+        namespace.getRoomOperations("room").sendEvent("msg");
+        assertEquals(1, head.getPacketsQueue(Transport.WEBSOCKET).size());
+        assertEquals(1, createClient().getSlot());
+    }
+
+    @Test
+    public void testReusedSlotNotReturnedBySnapshot() {
+        NamespaceClient client1 = createClient();
+        namespace.join("room1", client1.getSessionId());
+        Iterable<SocketIOClient> clients = namespace.getRoomClients(Arrays.asList("room1", "room2"),
+                                                                    Collections.<String>emptyList());
+
+        namespace.onDisconnect(client1);
+        NamespaceClient client2 = createClient();
+        assertEquals(client1.getSlot(), client2.getSlot());
+        assertFalse(clients.iterator().hasNext());
+
+        namespace.join("room2", client2.getSessionId());
+        assertSame(client2, clients.iterator().next());
+    }
+
+    @Test
+    public void testJoinDisconnectRace() throws InterruptedException {
+        final Set<String> rooms = new HashSet<String>(Arrays.asList("room1", "room2", "room3"));
+        for (int i = 0; i < 2000; i++) {
+            final NamespaceClient client = createClient();
+            Thread joinThread = new Thread() {
+                @Override
+                public void run() {
+                    namespace.join(rooms, client.getSessionId());
+                }
+            };
+            joinThread.start();
+            namespace.onDisconnect(client);
+            joinThread.join();
+
+            // slot of disconnected client is reused by the next one
+            NamespaceClient nextClient = createClient();
+            assertEquals(client.getSlot(), nextClient.getSlot());
+            assertTrue(namespace.getRooms().isEmpty());
+            assertFalse(namespace.getRoomClients(rooms, Collections.<String>emptyList()).iterator().hasNext());
+            assertTrue(namespace.getRooms(nextClient).isEmpty());
+            namespace.onDisconnect(nextClient);
+        }
+    }
+
+    @Test
+    public void testJoinIgnoresClientMonitor() throws InterruptedException {
+        final NamespaceClient client = createClient();
+        Thread joinThread = new Thread() {
+            @Override
+            public void run() {
+                namespace.join("room", client.getSessionId());
+                namespace.leave("room", client.getSessionId());
+                namespace.onDisconnect(client);
+            }
+        };
+        // application code may lock on client instance
+        synchronized (client) {
+            joinThread.start();
+            joinThread.join(5000);
+            assertFalse(joinThread.isAlive());
+        }
+        assertTrue(namespace.getRooms().isEmpty());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testRoomClientsUnmodifiable() {
+        NamespaceClient client = createClient();
+        namespace.join("room", client.getSessionId());
+
+        Iterator<SocketIOClient> iterator = namespace.getRoomClients("room").iterator();
+        iterator.next();
+        iterator.remove();
+    }
+
+}
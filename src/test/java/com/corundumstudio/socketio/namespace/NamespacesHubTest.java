@@ -0,0 +1,125 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.namespace;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import com.corundumstudio.socketio.Configuration;
+import com.corundumstudio.socketio.HandshakeData;
+import com.corundumstudio.socketio.ServerBroadcastOperations;
+import com.corundumstudio.socketio.SocketIOClient;
+import com.corundumstudio.socketio.Transport;
+import com.corundumstudio.socketio.handler.ClientHead;
+import com.corundumstudio.socketio.handler.ClientsBox;
+import com.corundumstudio.socketio.store.MemoryPubSubStore;
+import com.corundumstudio.socketio.store.MemoryStoreFactory;
+import com.corundumstudio.socketio.store.pubsub.DispatchMessage;
+import com.corundumstudio.socketio.store.pubsub.PubSubMessage;
+import com.corundumstudio.socketio.store.pubsub.PubSubStore;
+import com.corundumstudio.socketio.store.pubsub.PubSubType;
+import com.corundumstudio.socketio.transport.NamespaceClient;
+
+public class NamespacesHubTest {
+
+    private final Configuration configuration = new Configuration();
+    private final NamespacesHub hub = new NamespacesHub(configuration);
+
+    private NamespaceClient createClient(Namespace namespace) {
+        ClientHead client = new ClientHead(UUID.randomUUID(), null, null, new MemoryStoreFactory(),
+                new HandshakeData(new DefaultHttpHeaders(), null, null, null, false),
+                new ClientsBox(), Transport.WEBSOCKET, null, configuration);
+        return new NamespaceClient(client, namespace);
+    }
+
+    private List<SocketIOClient> toList(Iterable<SocketIOClient> clients) {
+        List<SocketIOClient> result = new ArrayList<SocketIOClient>();
+        for (SocketIOClient client : clients) {
+            result.add(client);
+        }
+        return result;
+    }
+
+    @Test
+    public void testRoomClients() {
+        Namespace chat = hub.create("/chat");
+        Namespace news = hub.create("/news");
+        for (int i = 0; i < 10; i++) {
+            hub.create("/empty" + i);
+        }
+        NamespaceClient client1 = createClient(chat);
+        NamespaceClient client2 = createClient(news);
+        NamespaceClient client3 = createClient(news);
+
+        Iterable<SocketIOClient> roomClients = hub.getRoomClients("room");
+        assertFalse(roomClients.iterator().hasNext());
+
+        // namespaces are resolved on iteration
+        chat.join("room", client1.getSessionId());
+        news.join("room", client2.getSessionId());
+        List<SocketIOClient> clients = toList(roomClients);
+        assertEquals(2, clients.size());
+        assertTrue(clients.contains(client1));
+        assertTrue(clients.contains(client2));
+
+        assertEquals(3, toList(hub.getRoomClients(null)).size());
+        assertEquals(2, new ServerBroadcastOperations(hub, "room", configuration.getStoreFactory()).getClients().size());
+        assertTrue(new ServerBroadcastOperations(hub, null, configuration.getStoreFactory()).getClients().contains(client3));
+    }
+
+    @Test
+    public void testDispatchPerNamespace() {
+        hub.create("/chat");
+        hub.create("/news");
+        final List<DispatchMessage> messages = new ArrayList<DispatchMessage>();
+        MemoryStoreFactory storeFactory = new MemoryStoreFactory() {
+            @Override
+            public PubSubStore pubSubStore() {
+                return new MemoryPubSubStore() {
+                    @Override
+                    public void publish(PubSubType type, PubSubMessage msg) {
+                        messages.add((DispatchMessage) msg);
+                    }
+                };
+            }
+        };
+
+        new ServerBroadcastOperations(hub, "room", storeFactory).sendEvent("msg");
+        new ServerBroadcastOperations(hub, null, storeFactory).sendEvent("msg");
+        // messages are readable by nodes which handle single room messages only
+        Set<String> targets = new HashSet<String>();
+        for (DispatchMessage message : messages) {
+            assertNull(message.getRooms());
+            targets.add(message.getNamespace() + ":" + message.getRoom());
+        }
+        assertEquals(new HashSet<String>(Arrays.asList("/chat:room", "/news:room", "/chat:/chat", "/news:/news")), targets);
+        assertEquals(4, messages.size());
+    }
+
+}
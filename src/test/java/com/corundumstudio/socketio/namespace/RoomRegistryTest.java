@@ -0,0 +1,80 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.namespace;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class RoomRegistryTest {
+
+    private final RoomRegistry registry = new RoomRegistry();
+
+    @Test
+    public void testJoinLeave() {
+        List<String> rooms = Arrays.asList("room1", "room2");
+        registry.join(rooms, 1);
+        registry.join("room1", 2);
+        assertTrue(registry.getMembers("room1").contains(1));
+        assertTrue(registry.getMembers("room2").contains(1));
+        assertEquals(2, registry.getMembers("room1").size());
+
+        registry.leave(rooms, 1);
+        assertNull(registry.getMembers("room2"));
+        assertFalse(registry.getMembers("room1").contains(1));
+
+        registry.leave("room1", 2);
+        registry.leave("room1", 2);
+        assertTrue(registry.getRooms().isEmpty());
+    }
+
+    @Test
+    public void testConcurrentChurn() throws InterruptedException {
+        final List<String> rooms = Arrays.asList("room1", "room2", "room3");
+        final int threads = 4;
+        final CountDownLatch latch = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            final int slot = i;
+            new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 10000; j++) {
+                        registry.join(rooms, slot);
+                        if (!registry.getMembers("room2").contains(slot)) {
+                            return;
+                        }
+                        registry.leave(rooms, slot);
+                    }
+                    registry.join("room1", slot);
+                    latch.countDown();
+                }
+            }.start();
+        }
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+
+        assertEquals(1, registry.getRooms().size());
+        assertEquals(threads, registry.getMembers("room1").size());
+    }
+
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.protocol;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+public class CborPacketCodecTest {
+
+    private final CborPacketCodec codec = new CborPacketCodec();
+
+    private Packet roundTrip(Packet packet) throws IOException {
+        ByteBuf out = Unpooled.buffer();
+        codec.encodePacket(packet, out);
+        return codec.decodePacket(out, null, null);
+    }
+
+    private Packet binaryEvent(String name, byte[] data) {
+        Packet packet = new Packet(PacketType.MESSAGE);
+        packet.setSubType(PacketType.EVENT);
+        packet.setNsp("/chat");
+        packet.setName(name);
+        packet.setData(Arrays.<Object>asList("file", data));
+        return packet;
+    }
+
+    @Test
+    public void testBinaryEvent() throws IOException {
+        codec.addEventMapping("/chat", "upload", String.class, byte[].class);
+        byte[] data = new byte[] {1, 2, 3, (byte) 0xFF};
+
+        Packet packet = roundTrip(binaryEvent("upload", data));
+        assertEquals(PacketType.EVENT, packet.getSubType());
+        assertEquals("/chat", packet.getNsp());
+        assertEquals("upload", packet.getName());
+        List<Object> args = packet.getData();
+        assertEquals("file", args.get(0));
+        assertArrayEquals(data, (byte[]) args.get(1));
+    }
+
+    @Test
+    public void testRelayEventAttachments() throws IOException {
+        codec.addEventMapping("/chat", "relay", RelayEvent.class);
+        codec.addEventMapping("/chat", "upload", String.class, byte[].class);
+        byte[] data = new byte[] {1, 2, 3, (byte) 0xFF};
+
+        Packet packet = roundTrip(binaryEvent("relay", data));
+        List<Object> args = packet.getData();
+        RelayEvent event = (RelayEvent) args.get(0);
+        assertEquals(1, event.getAttachments().size());
+        assertArrayEquals(data, event.getAttachments().get(0));
+        assertEquals("[\"relay\",\"file\",{\"_placeholder\":true,\"num\":0}]",
+                        new String(event.getJson(), CharsetUtil.UTF_8));
+
+        Packet relayed = roundTrip(event.createPacket().shareWithNsp("/chat"));
+        List<Object> relayedArgs = relayed.getData();
+        RelayEvent relayedEvent = (RelayEvent) relayedArgs.get(0);
+        assertArrayEquals(event.getJson(), relayedEvent.getJson());
+        assertArrayEquals(data, relayedEvent.getAttachments().get(0));
+    }
+
+    @Test
+    public void testTextRelayEventAttachments() throws IOException {
+        codec.addEventMapping("/chat", "upload", String.class, byte[].class);
+        byte[] data = new byte[] {4, 5, 6};
+
+        // relay event decoded from text protocol keeps binary data as attachments
+        byte[] json = "[\"upload\",\"file\",{\"_placeholder\":true,\"num\":0}]".getBytes(CharsetUtil.UTF_8);
+        RelayEvent event = new RelayEvent("upload", json, Collections.singletonList(data));
+
+        Packet packet = roundTrip(event.createPacket().shareWithNsp("/chat"));
+        assertEquals("upload", packet.getName());
+        List<Object> args = packet.getData();
+        assertEquals("file", args.get(0));
+        assertArrayEquals(data, (byte[]) args.get(1));
+    }
+
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.protocol;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.JsonFactory;
+
+public class JacksonPacketCodecTest {
+
+    private final JacksonPacketCodec codec = new JacksonPacketCodec(new JsonFactory());
+
+    private Packet decode(String data) throws IOException {
+        return codec.decodePacket(Unpooled.copiedBuffer(data, CharsetUtil.UTF_8), null, null);
+    }
+
+    private String encode(Packet packet) throws IOException {
+        ByteBuf out = Unpooled.buffer();
+        codec.encodePacket(packet, out);
+        return out.toString(CharsetUtil.UTF_8);
+    }
+
+    @Test
+    public void testDecodeEvent() throws IOException {
+        codec.addEventMapping("/chat", "msg", String.class, Integer.class);
+
+        Packet packet = decode("{\"type\":2,\"data\":[\"msg\",\"hello\",1],\"nsp\":\"/chat\",\"id\":3}");
+        assertEquals(PacketType.MESSAGE, packet.getType());
+        assertEquals(PacketType.EVENT, packet.getSubType());
+        assertEquals("/chat", packet.getNsp());
+        assertEquals(3L, (long) packet.getAckId());
+        assertEquals("msg", packet.getName());
+        assertEquals(Arrays.asList("hello", 1), packet.getData());
+    }
+
+    @Test
+    public void testDecodeConnect() throws IOException {
+        Packet packet = decode("{\"type\":0,\"nsp\":\"/\"}");
+        assertEquals(PacketType.CONNECT, packet.getSubType());
+        assertEquals("", packet.getNsp());
+        assertNull(packet.getAckId());
+    }
+
+    @Test
+    public void testEncodeEvent() throws IOException {
+        Packet packet = new Packet(PacketType.MESSAGE);
+        packet.setSubType(PacketType.EVENT);
+        packet.setName("msg");
+        packet.setAckId(5L);
+        packet.setData(Arrays.asList("hello", 1));
+        assertEquals("{\"type\":2,\"nsp\":\"/\",\"id\":5,\"data\":[\"msg\",\"hello\",1]}", encode(packet));
+
+        Packet ack = new Packet(PacketType.MESSAGE);
+        ack.setSubType(PacketType.ACK);
+        ack.setNsp("/chat");
+        ack.setAckId(1L);
+        ack.setData(Collections.emptyList());
+        assertEquals("{\"type\":3,\"nsp\":\"/chat\",\"id\":1,\"data\":[]}", encode(ack));
+    }
+
+    @Test
+    public void testRelayEvent() throws IOException {
+        codec.addEventMapping("", "relay", RelayEvent.class);
+
+        Packet packet = decode("{\"type\":2,\"nsp\":\"/\",\"data\":[\"relay\", {\"a\": [1, 2]}]}");
+        List<Object> args = packet.getData();
+        RelayEvent event = (RelayEvent) args.get(0);
+        assertArrayEquals("[\"relay\",{\"a\":[1,2]}]".getBytes(CharsetUtil.UTF_8), event.getJson());
+
+        assertEquals("{\"type\":2,\"nsp\":\"/chat\",\"data\":[\"relay\",{\"a\":[1,2]}]}",
+                        encode(event.createPacket().shareWithNsp("/chat")));
+    }
+
+}
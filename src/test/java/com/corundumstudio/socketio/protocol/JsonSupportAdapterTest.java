@@ -0,0 +1,119 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.protocol;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.corundumstudio.socketio.AckCallback;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class JsonSupportAdapterTest {
+
+    /**
+     * Realization written against the interface
+     * before attachments aware methods were added
+     */
+    static class LegacyJsonSupport extends JsonSupportAdapter {
+
+        final ObjectMapper mapper = new ObjectMapper();
+        List<byte[]> arrays = Collections.emptyList();
+
+        @Override
+        public AckArgs readAckArgs(ByteBufInputStream src, AckCallback<?> callback) throws IOException {
+            return mapper.readValue((InputStream) src, AckArgs.class);
+        }
+
+        @Override
+        public <T> T readValue(String namespaceName, ByteBufInputStream src, Class<T> valueType) throws IOException {
+            return mapper.readValue((InputStream) src, valueType);
+        }
+
+        @Override
+        public void writeValue(ByteBufOutputStream out, Object value) throws IOException {
+            mapper.writeValue((OutputStream) out, value);
+        }
+
+        @Override
+        public void addEventMapping(String namespaceName, String eventName, Class<?>... eventClass) {
+        }
+
+        @Override
+        public void removeEventMapping(String namespaceName, String eventName) {
+        }
+
+        @Override
+        public List<byte[]> getArrays() {
+            return arrays;
+        }
+
+    }
+
+    @Test
+    public void testReadValue() throws IOException {
+        LegacyJsonSupport jsonSupport = new LegacyJsonSupport();
+        ByteBuf buf = Unpooled.copiedBuffer("[1,2]", CharsetUtil.UTF_8);
+        List<?> value = jsonSupport.readValue("", new ByteBufInputStream(buf), List.class, null);
+        assertEquals(Arrays.asList(1, 2), value);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testReadValueRawAttachments() throws IOException {
+        LegacyJsonSupport jsonSupport = new LegacyJsonSupport();
+        ByteBuf buf = Unpooled.copiedBuffer("[{\"_placeholder\":true,\"num\":0}]", CharsetUtil.UTF_8);
+        List<ByteBuf> attachments = Collections.singletonList(Unpooled.wrappedBuffer(new byte[] {1}));
+        jsonSupport.readValue("", new ByteBufInputStream(buf), List.class, attachments);
+    }
+
+    @Test
+    public void testWriteArgs() throws IOException {
+        LegacyJsonSupport jsonSupport = new LegacyJsonSupport();
+        byte[] data = {1, 2, 3};
+        jsonSupport.arrays = Collections.singletonList(data);
+
+        ByteBuf buf = Unpooled.buffer();
+        List<ByteBuf> attachments = new ArrayList<ByteBuf>();
+        jsonSupport.writeArgs(new ByteBufOutputStream(buf), "msg", Arrays.asList(1, "a"), attachments);
+        assertEquals("[\"msg\",1,\"a\"]", buf.toString(CharsetUtil.UTF_8));
+        assertEquals(1, attachments.size());
+        assertArrayEquals(data, ByteBufUtil.getBytes(attachments.get(0)));
+
+        buf.clear();
+        attachments.clear();
+        jsonSupport.arrays = Collections.emptyList();
+        jsonSupport.writeArgs(new ByteBufOutputStream(buf), null, Arrays.asList(2), attachments);
+        assertEquals("[2]", buf.toString(CharsetUtil.UTF_8));
+        assertEquals(0, attachments.size());
+    }
+
+}
@@ -0,0 +1,351 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.protocol;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.util.CharsetUtil;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.corundumstudio.socketio.Configuration;
+import com.corundumstudio.socketio.HandshakeData;
+import com.corundumstudio.socketio.LazyArgument;
+import com.corundumstudio.socketio.Transport;
+import com.corundumstudio.socketio.handler.ClientHead;
+import com.corundumstudio.socketio.handler.ClientsBox;
+import com.corundumstudio.socketio.misc.InternedStrings;
+import com.corundumstudio.socketio.store.MemoryStoreFactory;
+
+public class PacketDecoderTest {
+
+    private final String chat = new String("/chat");
+
+    private JacksonJsonSupport jsonSupport;
+    private PacketDecoder decoder;
+    private ClientHead client;
+
+    @Before
+    public void before() {
+        InternedStrings names = new InternedStrings();
+        names.add("");
+        names.add(chat);
+        jsonSupport = new JacksonJsonSupport();
+        jsonSupport.addEventMapping("", "msg", String.class);
+        jsonSupport.addEventMapping("", "relay", LazyArgument.class, LazyArgument.class);
+        jsonSupport.addEventMapping("/chat", "relay", RelayEvent.class);
+        decoder = new PacketDecoder(new Configuration(), jsonSupport, null, names);
+        client = new ClientHead(UUID.randomUUID(), null, null, new MemoryStoreFactory(),
+                new HandshakeData(new DefaultHttpHeaders(), null, null, null, false),
+                new ClientsBox(), Transport.WEBSOCKET, null, new Configuration());
+    }
+
+    private Packet decode(String packet) throws IOException {
+        return decoder.decodePackets(Unpooled.copiedBuffer(packet, CharsetUtil.UTF_8), client);
+    }
+
+    @Test
+    public void testDecodeEvent() throws IOException {
+        Packet packet = decode("42[\"msg\",\"hello\"]");
+        assertEquals("", packet.getNsp());
+        assertNull(packet.getAckId());
+        assertEquals("msg", packet.getName());
+        assertEquals(Arrays.asList("hello"), packet.getData());
+    }
+
+    @Test
+    public void testDecodeDefaultNamespaceEvent() throws IOException {
+        Packet packet = decode("42/chat,[\"msg\",\"hello\"]");
+        assertEquals(chat, packet.getNsp());
+        assertEquals(Arrays.asList("hello"), packet.getData());
+
+        // mapping of default namespace added after namespace mapping
+        jsonSupport.addEventMapping("", "num", Integer.class);
+        packet = decode("42/chat,[\"num\",\"1\"]");
+        assertEquals(Arrays.asList(1), packet.getData());
+
+        jsonSupport.addEventMapping("/chat", "num", String.class);
+        packet = decode("42/chat,[\"num\",\"1\"]");
+        assertEquals(Arrays.asList("1"), packet.getData());
+
+        jsonSupport.removeEventMapping("/chat", "num");
+        packet = decode("42/chat,[\"num\",\"1\"]");
+        assertEquals(Arrays.asList(1), packet.getData());
+    }
+
+    @Test
+    public void testDecodeLazyArguments() throws IOException {
+        Packet packet = decode("42[\"relay\",{\"a\":[1,2]},null]");
+        List<Object> args = packet.getData();
+        assertEquals(2, args.size());
+
+        LazyArgument arg = (LazyArgument) args.get(0);
+        assertEquals("{\"a\":[1,2]}", arg.toString());
+        Map<String, Object> value = arg.getValue(Map.class);
+        assertEquals(Arrays.asList(1, 2), value.get("a"));
+        assertSame(value, arg.getValue(Map.class));
+
+        assertEquals("null", args.get(1).toString());
+    }
+
+    @Test
+    public void testDecodeNamespaceAndAckId() throws IOException {
+        Packet packet = decode("42/chat,1234567890123[\"msg\"]");
+        assertSame(chat, packet.getNsp());
+        assertEquals(1234567890123L, (long) packet.getAckId());
+        assertEquals("msg", packet.getName());
+
+        packet = decode("42/chat,[\"msg\"]");
+        assertSame(chat, packet.getNsp());
+        assertNull(packet.getAckId());
+
+        packet = decode("4212[\"msg\"]");
+        assertEquals("", packet.getNsp());
+        assertEquals(12L, (long) packet.getAckId());
+    }
+
+    @Test
+    public void testDecodeUnknownNamespace() throws IOException {
+        Packet packet = decode("42/other,5[\"msg\"]");
+        assertEquals("/other", packet.getNsp());
+        assertEquals(5L, (long) packet.getAckId());
+    }
+
+    @Test
+    public void testDecodeBinaryEventHeader() throws IOException {
+        Packet packet = decode("451-/chat,7[\"file\",{\"_placeholder\":true,\"num\":0}]");
+        assertEquals(PacketType.BINARY_EVENT, packet.getSubType());
+        assertSame(chat, packet.getNsp());
+        assertEquals(7L, (long) packet.getAckId());
+        assertSame(packet, client.getLastBinaryPacket());
+    }
+
+    @Test
+    public void testDecodeConnect() throws IOException {
+        assertSame(chat, decode("40/chat").getNsp());
+        assertSame(chat, decode("40/chat?token=1").getNsp());
+        assertSame(chat, decode("41/chat,").getNsp());
+    }
+
+    private void writeFrame(ByteBuf payload, int type, byte[] data) {
+        payload.writeByte(type);
+        PacketEncoder.writeDigits(payload, data.length);
+        payload.writeByte(0xff);
+        payload.writeBytes(data);
+    }
+
+    @Test
+    public void testDecodeBinaryPayload() throws IOException {
+        ByteBuf payload = Unpooled.buffer();
+        writeFrame(payload, 0, "42[\"msg\",\"a\"]".getBytes(CharsetUtil.UTF_8));
+        writeFrame(payload, 0, "451-[\"msg\",{\"_placeholder\":true,\"num\":0}]".getBytes(CharsetUtil.UTF_8));
+        writeFrame(payload, 1, new byte[] {4, 1, 2, 3});
+        writeFrame(payload, 0, "42[\"msg\",\"\u00e9\"]".getBytes(CharsetUtil.UTF_8));
+
+        assertEquals(Arrays.asList("a"), decoder.decodePackets(payload, client).getData());
+        Packet binaryPacket = decoder.decodePackets(payload, client);
+        assertFalse(binaryPacket.isAttachmentsLoaded());
+        assertSame(binaryPacket, decoder.decodePackets(payload, client));
+        assertTrue(binaryPacket.isAttachmentsLoaded());
+        assertEquals(Arrays.asList("\u00e9"), decoder.decodePackets(payload, client).getData());
+        assertFalse(payload.isReadable());
+    }
+
+    @Test
+    public void testDecodeStringPayload() throws IOException {
+        ByteBuf payload = Unpooled.copiedBuffer("13:42[\"msg\",\"a\"]"
+                                                + "14:42[\"msg\",\"\u00e9\u00e9\"]"
+                                                + "14:42[\"msg\",\"\ud83d\ude00\"]", CharsetUtil.UTF_8);
+
+        assertEquals(Arrays.asList("a"), decoder.decodePackets(payload, client).getData());
+        assertEquals(Arrays.asList("\u00e9\u00e9"), decoder.decodePackets(payload, client).getData());
+        assertEquals(Arrays.asList("\ud83d\ude00"), decoder.decodePackets(payload, client).getData());
+        assertFalse(payload.isReadable());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testInvalidFrameLength() throws IOException {
+        ByteBuf payload = Unpooled.buffer();
+        payload.writeByte(0);
+        payload.writeBytes("1a".getBytes(CharsetUtil.UTF_8));
+        payload.writeByte(0xff);
+        payload.writeBytes("42[\"msg\"]".getBytes(CharsetUtil.UTF_8));
+        decoder.decodePackets(payload, client);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testFrameLengthExceedsPayload() throws IOException {
+        decoder.decodePackets(Unpooled.copiedBuffer("99:42[\"msg\"]", CharsetUtil.UTF_8), client);
+    }
+
+    private String preprocess(Integer jsonIndex, String content) throws IOException {
+        ByteBuf buf = decoder.preprocessJson(jsonIndex, Unpooled.copiedBuffer(content, CharsetUtil.UTF_8), ByteBufAllocator.DEFAULT);
+        try {
+            return buf.toString(CharsetUtil.UTF_8);
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Test
+    public void testPreprocessJson() throws IOException {
+        String[] payloads = {"d=13%3A42%5B%22msg%22%2C%22a%22%5D",
+                             "d=42[\"a+b%2Bc\",\"\\\\n\",\"\\\\\\n\",\"%5C%5Cn\"]",
+                             "d=%D0%BF%D1%80%D0%B8%D0%B2%D0%B5%D1%82 \u00e9"};
+        for (String payload : payloads) {
+            String expected = URLDecoder.decode(payload, "UTF-8");
+            assertEquals(expected, preprocess(null, payload));
+            assertEquals(expected.replace("\\\\n", "\\n").substring(2), preprocess(0, payload));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPreprocessInvalidEscape() throws IOException {
+        preprocess(0, "d=42%2");
+    }
+
+    private Packet decodeBinaryEvent(PacketDecoder decoder, String json, byte[]... attachments) throws IOException {
+        ByteBuf source = Unpooled.copiedBuffer(json, CharsetUtil.UTF_8);
+        Packet packet = decoder.decodePackets(source, client);
+        source.release();
+        // retained until all attachments are received
+        assertEquals(1, source.refCnt());
+
+        ByteBuf frame = null;
+        for (byte[] attachment : attachments) {
+            frame = Unpooled.buffer();
+            frame.writeByte(4);
+            frame.writeBytes(attachment);
+            packet = decoder.decodePackets(frame, client);
+            frame.release();
+        }
+        assertEquals(0, source.refCnt());
+        assertEquals(0, frame.refCnt());
+        assertNull(client.getLastBinaryPacket());
+        return packet;
+    }
+
+    private PacketDecoder createDecoder(boolean rawBinaryAttachments) {
+        Configuration configuration = new Configuration();
+        configuration.setRawBinaryAttachments(rawBinaryAttachments);
+        JacksonJsonSupport jsonSupport = new JacksonJsonSupport();
+        jsonSupport.addEventMapping("", "file", String.class, byte[].class, byte[].class);
+        jsonSupport.addEventMapping("", "relay", RelayEvent.class);
+        return new PacketDecoder(configuration, jsonSupport, null, new InternedStrings());
+    }
+
+    @Test
+    public void testDecodeBinaryAttachments() throws IOException {
+        for (boolean raw : new boolean[] {false, true}) {
+            Packet packet = decodeBinaryEvent(createDecoder(raw),
+                    "452-[\"file\",\"name\",{\"num\":1,\"_placeholder\":true},{\"_placeholder\":true,\"num\":0}]",
+                    new byte[] {1, 2, 3}, new byte[] {4, 5});
+
+            assertEquals("file", packet.getName());
+            List<Object> args = packet.getData();
+            assertEquals("name", args.get(0));
+            assertArrayEquals(new byte[] {4, 5}, (byte[]) args.get(1));
+            assertArrayEquals(new byte[] {1, 2, 3}, (byte[]) args.get(2));
+        }
+    }
+
+    @Test
+    public void testDecodeBase64Attachment() throws IOException {
+        for (boolean raw : new boolean[] {false, true}) {
+            PacketDecoder decoder = createDecoder(raw);
+            ByteBuf payload = Unpooled.copiedBuffer("49:451-[\"file\",\"name\",{\"_placeholder\":true,\"num\":0}]6:b4AQID", CharsetUtil.UTF_8);
+            assertFalse(decoder.decodePackets(payload, client).isAttachmentsLoaded());
+            Packet packet = decoder.decodePackets(payload, client);
+            payload.release();
+
+            List<Object> args = packet.getData();
+            assertArrayEquals(new byte[] {1, 2, 3}, (byte[]) args.get(1));
+        }
+    }
+
+    private String encode(Packet packet) throws IOException {
+        PacketEncoder encoder = new PacketEncoder(new Configuration(), new JacksonJsonSupport());
+        ByteBuf buf = Unpooled.buffer();
+        encoder.encodePacket(packet, buf, ByteBufAllocator.DEFAULT, true);
+        return buf.toString(CharsetUtil.UTF_8);
+    }
+
+    @Test
+    public void testRelayEvent() throws IOException {
+        String json = "[\"relay\", {\"a\" : [1,2]}, \"h\u00e9llo\"]";
+        Packet packet = decode("42/chat,5" + json);
+        assertEquals("relay", packet.getName());
+        List<Object> args = packet.getData();
+        RelayEvent event = (RelayEvent) args.get(0);
+        assertEquals("relay", event.getName());
+        assertArrayEquals(json.getBytes(CharsetUtil.UTF_8), event.getJson());
+
+        assertEquals("42" + json, encode(event.createPacket().shareWithNsp("")));
+        assertEquals("42/other," + json, encode(event.createPacket().shareWithNsp("/other")));
+    }
+
+    @Test
+    public void testRelayBinaryEvent() throws IOException {
+        for (boolean raw : new boolean[] {false, true}) {
+            String json = "[\"relay\",{\"_placeholder\":true,\"num\":0}]";
+            Packet packet = decodeBinaryEvent(createDecoder(raw), "451-" + json, new byte[] {1, 2, 3});
+            List<Object> args = packet.getData();
+            RelayEvent event = (RelayEvent) args.get(0);
+            assertArrayEquals(json.getBytes(CharsetUtil.UTF_8), event.getJson());
+            assertEquals(1, event.getAttachments().size());
+            assertArrayEquals(new byte[] {1, 2, 3}, event.getAttachments().get(0));
+
+            Packet outPacket = event.createPacket().shareWithNsp("/chat");
+            assertEquals("451-/chat," + json, encode(outPacket));
+            assertEquals(1, outPacket.getAttachments().size());
+        }
+    }
+
+    @Test
+    public void testIncompleteBinaryPacketReleased() throws IOException {
+        ByteBuf frame = Unpooled.copiedBuffer("451-[\"file\",{\"_placeholder\":true,\"num\":0}]", CharsetUtil.UTF_8);
+        decoder.decodePackets(frame, client);
+        frame.release();
+        assertEquals(1, frame.refCnt());
+
+        // replaced by next binary packet
+        ByteBuf nextFrame = Unpooled.copiedBuffer("451-[\"file\",{\"_placeholder\":true,\"num\":0}]", CharsetUtil.UTF_8);
+        decoder.decodePackets(nextFrame, client);
+        nextFrame.release();
+        assertEquals(0, frame.refCnt());
+
+        client.setLastBinaryPacket(null);
+        assertEquals(0, nextFrame.refCnt());
+    }
+
+}
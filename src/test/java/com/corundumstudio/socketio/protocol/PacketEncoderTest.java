@@ -0,0 +1,311 @@
+/**
+ * Copyright (c) 2012-2019 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.protocol;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import com.corundumstudio.socketio.Configuration;
+import com.corundumstudio.socketio.LazyArgument;
+
+public class PacketEncoderTest {
+
+    private final PacketEncoder encoder = new PacketEncoder(new Configuration(), new JacksonJsonSupport());
+
+    private Packet createEvent(String name, Object... args) {
+        Packet packet = new Packet(PacketType.MESSAGE);
+        packet.setSubType(PacketType.EVENT);
+        packet.setName(name);
+        packet.setData(Arrays.asList(args));
+        return packet;
+    }
+
+    private String encode(Packet packet) throws IOException {
+        ByteBuf buf = Unpooled.buffer();
+        encoder.encodePacket(packet, buf, ByteBufAllocator.DEFAULT, true);
+        return buf.toString(CharsetUtil.UTF_8);
+    }
+
+    @Test
+    public void testEncodeEvent() throws IOException {
+        assertEquals("42[\"msg\",\"hello\",1]", encode(createEvent("msg", "hello", 1)));
+
+        Packet packet = createEvent("msg", "hello");
+        packet.setNsp("/chat");
+        packet.setAckId(12L);
+        assertEquals("42/chat,12[\"msg\",\"hello\"]", encode(packet));
+    }
+
+    @Test
+    public void testEncodeLazyArgument() throws IOException {
+        String json = "{\"text\":\"h\u00e9llo\",\"n\":[1, 2]}";
+        LazyArgument arg = new LazyArgument(json.getBytes(CharsetUtil.UTF_8), new JacksonJsonSupport());
+        assertEquals("42[\"relay\"," + json + ",1]", encode(createEvent("relay", arg, 1)));
+    }
+
+    @Test
+    public void testEncodeAck() throws IOException {
+        Packet packet = new Packet(PacketType.MESSAGE);
+        packet.setSubType(PacketType.ACK);
+        packet.setAckId(140L);
+        packet.setData(Arrays.asList("woot", null, 1));
+        assertEquals("43140[\"woot\",null,1]", encode(packet));
+    }
+
+    @Test
+    public void testEncodeBinaryEvent() throws IOException {
+        Packet packet = createEvent("file", "name", (Object) new byte[] {1, 2, 3});
+        packet.setNsp("/chat");
+        packet.setAckId(7L);
+        assertEquals("451-/chat,7[\"file\",\"name\",{\"_placeholder\":true,\"num\":0}]", encode(packet));
+        assertEquals(PacketType.BINARY_EVENT, packet.getSubType());
+        assertEquals(1, packet.getAttachments().size());
+    }
+
+    @Test
+    public void testEncodeBinaryAttachments() throws IOException {
+        byte[] first = {1, 2, 3};
+        byte[] second = {4, 5};
+        Packet packet = createEvent("file", first, Collections.singletonMap("data", second));
+        assertEquals("452-[\"file\",{\"_placeholder\":true,\"num\":0},{\"data\":{\"_placeholder\":true,\"num\":1}}]",
+                        encode(packet));
+        assertEquals(2, packet.getAttachments().size());
+        assertArrayEquals(first, ByteBufUtil.getBytes(packet.getAttachments().get(0)));
+        assertArrayEquals(second, ByteBufUtil.getBytes(packet.getAttachments().get(1)));
+
+        // arrays are wrapped without copying
+        first[0] = 9;
+        assertEquals(9, packet.getAttachments().get(0).getByte(0));
+
+        Packet next = createEvent("file", "name");
+        assertEquals("42[\"file\",\"name\"]", encode(next));
+        assertEquals(PacketType.EVENT, next.getSubType());
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testWriteValueBinaryPlaceholder() throws IOException {
+        JacksonJsonSupport jsonSupport = new JacksonJsonSupport();
+        byte[] data = {1, 2, 3};
+        ByteBuf buf = Unpooled.buffer();
+        jsonSupport.writeValue(new ByteBufOutputStream(buf), Collections.singletonMap("data", data));
+        assertEquals("{\"data\":{\"_placeholder\":true,\"num\":0}}", buf.toString(CharsetUtil.UTF_8));
+        assertTrue(jsonSupport.getArrays().isEmpty());
+
+        buf.clear();
+        List<ByteBuf> attachments = new ArrayList<ByteBuf>();
+        jsonSupport.writeArgs(new ByteBufOutputStream(buf), "file", Collections.singletonList(data), attachments);
+        assertEquals("[\"file\",{\"_placeholder\":true,\"num\":0}]", buf.toString(CharsetUtil.UTF_8));
+        assertEquals(1, attachments.size());
+        assertArrayEquals(data, attachments.get(0).array());
+    }
+
+    @Test
+    public void testWriteNumbers() {
+        long[] values = {0, 1, 9, 10, 99, 100, 65535, 65536, 123456789, Integer.MAX_VALUE,
+                            Integer.MAX_VALUE + 1L, Long.MAX_VALUE, -1, -65536};
+        for (long value : values) {
+            ByteBuf buf = Unpooled.buffer(1);
+            PacketEncoder.writeChars(buf, value);
+            assertEquals(String.valueOf(value), buf.toString(CharsetUtil.UTF_8));
+            assertArrayEquals(String.valueOf(value).getBytes(CharsetUtil.UTF_8), PacketEncoder.toChars(value));
+
+            if (value >= 0) {
+                buf.clear();
+                PacketEncoder.writeDigits(buf, value);
+                String str = String.valueOf(value);
+                assertEquals(str.length(), buf.readableBytes());
+                for (int i = 0; i < str.length(); i++) {
+                    assertEquals(str.charAt(i) - '0', buf.getByte(i));
+                }
+                assertArrayEquals(ByteBufUtil.getBytes(buf), PacketEncoder.longToBytes(value));
+            }
+        }
+    }
+
+    @Test
+    public void testHeaderEncodingIsGarbageFree() throws IOException {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported() && threadBean.isThreadAllocatedMemoryEnabled());
+
+        Packet packet = new Packet(PacketType.MESSAGE);
+        packet.setSubType(PacketType.CONNECT);
+        packet.setNsp("/chat");
+        packet.setAckId(1234567L);
+        ByteBuf buf = Unpooled.buffer(64);
+
+        int iterations = 100000;
+        for (int i = 0; i < iterations; i++) {
+            buf.clear();
+            encoder.encodePacket(packet, buf, ByteBufAllocator.DEFAULT, true);
+            PacketEncoder.writeDigits(buf, i);
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < iterations; i++) {
+            buf.clear();
+            encoder.encodePacket(packet, buf, ByteBufAllocator.DEFAULT, true);
+            PacketEncoder.writeDigits(buf, i);
+        }
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+        assertEquals("40/chat1234567", buf.toString(0, 14, CharsetUtil.UTF_8));
+        assertTrue("Allocated " + allocated + " bytes", allocated < iterations);
+    }
+
+    @Test
+    public void testSharedPacketEncodedOnce() throws IOException {
+        Packet packet = createEvent("msg", "hello").shareWithNsp("/chat");
+
+        ByteBuf first = encoder.encodeSharedPacket(packet, ByteBufAllocator.DEFAULT);
+        assertEquals("42/chat,[\"msg\",\"hello\"]", first.toString(CharsetUtil.UTF_8));
+
+        // encoded form is reused even if packet data has been changed
+        packet.setData(Arrays.asList("changed"));
+        ByteBuf second = encoder.encodeSharedPacket(packet, ByteBufAllocator.DEFAULT);
+        assertEquals("42/chat,[\"msg\",\"hello\"]", second.toString(CharsetUtil.UTF_8));
+        assertEquals("42/chat,[\"msg\",\"hello\"]", encode(packet));
+
+        first.release();
+        second.release();
+        assertEquals("42/chat,[\"msg\",\"hello\"]", encode(packet));
+    }
+
+    private LinkedList<Packet> createPayload() {
+        LinkedList<Packet> packets = new LinkedList<Packet>();
+        packets.add(createEvent("msg", "hello"));
+        packets.add(createEvent("msg", "hello").shareWithNsp(""));
+        char[] chars = new char[200];
+        Arrays.fill(chars, 'a');
+        packets.add(createEvent("long", new String(chars)));
+        return packets;
+    }
+
+    @Test
+    public void testEncodePayload() throws IOException {
+        ByteBuf buf = Unpooled.buffer();
+        encoder.encodePackets(createPayload(), buf, ByteBufAllocator.DEFAULT, 50);
+
+        ByteBuf expected = Unpooled.buffer();
+        for (Packet packet : createPayload()) {
+            ByteBuf data = Unpooled.buffer();
+            encoder.encodePacket(packet, data, ByteBufAllocator.DEFAULT, true);
+            expected.writeByte(0);
+            PacketEncoder.writeDigits(expected, data.readableBytes());
+            expected.writeByte(0xff);
+            expected.writeBytes(data);
+        }
+        assertEquals(expected, buf);
+
+        CompositeByteBuf composite = encoder.allocateCompositeBuffer(ByteBufAllocator.DEFAULT);
+        encoder.encodePackets(createPayload(), composite, ByteBufAllocator.DEFAULT, 50);
+        assertEquals(expected, composite);
+        composite.release();
+    }
+
+    @Test
+    public void testEncodePayloadLimit() throws IOException {
+        LinkedList<Packet> packets = createPayload();
+        ByteBuf buf = Unpooled.buffer();
+        encoder.encodePackets(packets, buf, ByteBufAllocator.DEFAULT, 2);
+        assertEquals(1, packets.size());
+        assertEquals("long", packets.peek().getName());
+    }
+
+    @Test
+    public void testEncodePayloadMaxBytes() throws IOException {
+        LinkedList<Packet> packets = createPayload();
+        ByteBuf buf = Unpooled.buffer();
+        encoder.encodePackets(packets, buf, ByteBufAllocator.DEFAULT, 50, 1);
+        assertEquals(2, packets.size());
+
+        packets = createPayload();
+        buf = Unpooled.buffer();
+        encoder.encodePackets(packets, buf, ByteBufAllocator.DEFAULT, 50, 30);
+        assertEquals(1, packets.size());
+
+        packets = createPayload();
+        buf = Unpooled.buffer();
+        encoder.encodeJsonP(null, packets, buf, ByteBufAllocator.DEFAULT, 50, 30);
+        assertEquals(1, packets.size());
+    }
+
+    @Test
+    public void testEncodeJsonP() throws IOException {
+        LinkedList<Packet> packets = new LinkedList<Packet>();
+        packets.add(createEvent("msg", "it's"));
+        packets.add(createEvent("msg", "\u00e9"));
+
+        ByteBuf buf = Unpooled.buffer();
+        encoder.encodeJsonP(null, new LinkedList<Packet>(packets), buf, ByteBufAllocator.DEFAULT, 50);
+        assertEquals("16:42[\"msg\",\"it's\"]14:42[\"msg\",\"\u00c3\u00a9\"]", buf.toString(CharsetUtil.UTF_8));
+
+        buf = Unpooled.buffer();
+        encoder.encodeJsonP(3, packets, buf, ByteBufAllocator.DEFAULT, 50);
+        assertEquals("___eio[3]('16:42[\"msg\",\"it\\'s\"]14:42[\"msg\",\"\u00c3\u00a9\"]');", buf.toString(CharsetUtil.UTF_8));
+    }
+
+    @Test
+    public void testEncodeJsonPEscaping() throws IOException {
+        LinkedList<Packet> packets = new LinkedList<Packet>();
+        packets.add(createEvent("\u00e9", "a\\b'\u00e9\u00e9c"));
+
+        ByteBuf buf = Unpooled.buffer();
+        encoder.encodeJsonP(0, packets, buf, ByteBufAllocator.DEFAULT, 50);
+        assertEquals("___eio[0]('21:42[\"\u00c3\u00a9\",\"a\\\\\\\\b\\'\u00c3\u00a9\u00c3\u00a9c\"]');",
+                        buf.toString(CharsetUtil.UTF_8));
+    }
+
+    @Test
+    public void testSharedBinaryPacket() throws IOException {
+        Packet packet = createEvent("file", (Object) new byte[] {1, 2, 3}).shareWithNsp("");
+
+        for (int i = 0; i < 2; i++) {
+            ByteBuf buf = Unpooled.buffer();
+            encoder.encodePackets(new LinkedList<Packet>(Arrays.asList(packet)), buf, ByteBufAllocator.DEFAULT, 50);
+            assertEquals(PacketType.BINARY_EVENT, packet.getSubType());
+            // attachment should not be consumed by previous recipient
+            assertEquals(3, packet.getAttachments().get(0).readableBytes());
+            assertEquals(4, buf.getByte(buf.writerIndex() - 4));
+            assertEquals(1, buf.getByte(buf.writerIndex() - 3));
+        }
+    }
+
+}
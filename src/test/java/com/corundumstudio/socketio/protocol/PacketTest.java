@@ -16,10 +16,13 @@
 package com.corundumstudio.socketio.protocol;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import org.junit.Test;
 
@@ -49,6 +52,32 @@ public class PacketTest {
         assertSame(packet, packet.withNsp(""));
     }
 
+    @Test
+    public void sharedPacketCopyIsCreatedEvenIfNamespaceIsTheSame() {
+        Packet packet = createPacket();
+        Packet sharedPacket = packet.shareWithNsp("old");
+        assertTrue(sharedPacket.isShared());
+        assertFalse(packet.isShared());
+        assertSame(sharedPacket, sharedPacket.withNsp("old"));
+        assertPacketCopied(packet, sharedPacket);
+    }
+
+    @Test
+    public void attachmentsAreDroppedOnRelease() {
+        Packet packet = createPacket();
+        ByteBuf dataSource = packet.getDataSource();
+        ByteBuf attachment = packet.getAttachments().get(0);
+
+        packet.releaseAttachments();
+        assertEquals(0, dataSource.refCnt());
+        assertEquals(0, attachment.refCnt());
+        assertNull(packet.getDataSource());
+        assertTrue(packet.getAttachments().isEmpty());
+        assertFalse(packet.hasAttachments());
+
+        packet.releaseAttachments();
+    }
+
     private void assertPacketCopied(Packet oldPacket, Packet newPacket) {
         assertNotSame(newPacket, oldPacket);
         assertEquals(oldPacket.getName(), newPacket.getName());
@@ -57,7 +86,7 @@ public class PacketTest {
         assertEquals(oldPacket.getAckId(), newPacket.getAckId());
         assertEquals(oldPacket.getAttachments().size(), newPacket.getAttachments().size());
         assertSame(oldPacket.getAttachments(), newPacket.getAttachments());
-        assertEquals(oldPacket.getData(), newPacket.getData());
+        assertEquals(oldPacket.<Object>getData(), newPacket.<Object>getData());
         assertSame(oldPacket.getDataSource(), newPacket.getDataSource());
     }
 